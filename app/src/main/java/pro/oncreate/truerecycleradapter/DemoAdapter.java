@@ -2,7 +2,6 @@ package pro.oncreate.truerecycleradapter;
 
 import android.content.Context;
 import android.support.v7.widget.RecyclerView;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
@@ -18,12 +17,12 @@ public class DemoAdapter extends TrueRecyclerAdapter<DemoModel, DemoAdapter.Demo
 
     public DemoAdapter(Context context) {
         this.context = context;
+        setPreInflatedLayout(R.layout.item_recycler, 4);
     }
 
     @Override
     protected RecyclerView.ViewHolder onCreateHolder(ViewGroup parent) {
-        return new DemoViewHolder(LayoutInflater.from(context)
-                .inflate(R.layout.item_recycler, parent, false));
+        return new DemoViewHolder(inflate(parent, R.layout.item_recycler));
     }
 
     @Override
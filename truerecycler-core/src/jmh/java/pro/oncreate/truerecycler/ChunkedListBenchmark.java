@@ -0,0 +1,75 @@
+package pro.oncreate.truerecycler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * ChunkedList and ArrayList when a long list is built by prepending pages, as chat history does,
+ * and when all items are read in order, as binding does.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkedListBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"50000", "200000"})
+    public int size;
+
+    @Param({"array", "chunked"})
+    public String storage;
+
+    private List<Integer> page;
+
+    private List<Integer> items;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        page = new ArrayList<>(Collections.nCopies(PAGE_SIZE, 0));
+        items = prependPages();
+    }
+
+    private List<Integer> createList() {
+        return "chunked".equals(storage) ? new ChunkedList<Integer>() : new ArrayList<Integer>();
+    }
+
+    /**
+     * Build the list from scratch on every call, so it is measured once per invocation.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public List<Integer> prependPages() {
+        List<Integer> list = createList();
+        for (int i = 0; i < size; i += PAGE_SIZE) {
+            for (int j = 0; j < PAGE_SIZE; j++)
+                page.set(j, i + j);
+            list.addAll(0, page);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public long getAll() {
+        long sum = 0;
+        for (int i = 0; i < items.size(); i++)
+            sum += items.get(i);
+        return sum;
+    }
+}
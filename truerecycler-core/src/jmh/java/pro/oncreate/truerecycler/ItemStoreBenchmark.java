@@ -0,0 +1,138 @@
+package pro.oncreate.truerecycler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Cost of the adapter bookkeeping at different sizes, run with ./gradlew :truerecycler-core:jmh.
+ * Mutating benchmarks undo their change, so the size stays the same during iteration.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ItemStoreBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"array", "chunked"})
+    public String storage;
+
+    private ItemStore<Item> store;
+
+    private Item[] page;
+
+    private List<Item> pageList;
+
+    private int[] positions;
+
+    private int next;
+
+    private static final class Item {
+        final long id;
+
+        Item(long id) {
+            this.id = id;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new ItemStore<>();
+        if ("chunked".equals(storage))
+            store.setStorage(new ChunkedList<Item>());
+        store.setKeyExtractor(new KeyExtractor<Item>() {
+            @Override
+            public long getKey(Item item) {
+                return item.id;
+            }
+        });
+        store.setPositionIndexEnabled(true);
+        store.getHeaders().add("header");
+        store.getFooters().add("footer");
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            items.add(new Item(i));
+        store.set(items);
+
+        page = new Item[PAGE_SIZE];
+        pageList = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page[i] = new Item(size + i);
+            pageList.add(page[i]);
+        }
+
+        Random random = new Random(42);
+        positions = new int[1024];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = random.nextInt(size);
+        // Build the index before measurement
+        store.indexOf(store.getItems().get(0));
+    }
+
+    private int nextPosition() {
+        return positions[next++ & (positions.length - 1)];
+    }
+
+    @Benchmark
+    public Item addToEnd() {
+        store.add(page[0]);
+        return store.remove(store.getItemsSize() - 1);
+    }
+
+    @Benchmark
+    public Item addToStart() {
+        store.add(0, page[0]);
+        return store.remove(0);
+    }
+
+    @Benchmark
+    public int addAllPage() {
+        int from = store.addAll(pageList);
+        for (int i = PAGE_SIZE - 1; i >= 0; i--)
+            store.remove(from + i);
+        return from;
+    }
+
+    @Benchmark
+    public Item removeAndInsertMiddle() {
+        int position = nextPosition();
+        Item item = store.remove(position);
+        store.add(position, item);
+        return item;
+    }
+
+    @Benchmark
+    public int getRowType() {
+        // Adapter positions include the header and the footer
+        return store.getRowType(nextPosition() + 1);
+    }
+
+    @Benchmark
+    public int indexOf() {
+        return store.indexOf(store.getItems().get(nextPosition()));
+    }
+
+    @Benchmark
+    public int indexOfKey() {
+        return store.indexOfKey(nextPosition());
+    }
+}
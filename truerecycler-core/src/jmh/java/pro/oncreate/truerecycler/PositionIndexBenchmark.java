@@ -0,0 +1,94 @@
+package pro.oncreate.truerecycler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Removing an item by model with PositionIndex and with the linear search,
+ * as TrueRecyclerAdapter#remove(Object) does. The item is inserted back, so the size stays the same.
+ * With duplicate the list also holds one instance twice, as placeholders of evicted pages do.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PositionIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean duplicate;
+
+    private List<Object> items;
+
+    private PositionIndex<Object> index;
+
+    private int[] positions;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            items.add(new Object());
+        if (duplicate) {
+            Object placeholder = new Object();
+            items.set(size / 3, placeholder);
+            items.set(size / 2, placeholder);
+        }
+        index = new PositionIndex<>(null);
+        // Build the index before measurement
+        index.indexOf(items.get(0), items);
+
+        Random random = new Random(7);
+        positions = new int[1024];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = random.nextInt(size);
+    }
+
+    private Object nextModel() {
+        return items.get(positions[next++ & (positions.length - 1)]);
+    }
+
+    @Benchmark
+    public int removeByModelLinear() {
+        Object model = nextModel();
+        int position = ItemStore.POSITION_NONE;
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == model) {
+                position = i;
+                break;
+            }
+        }
+        items.remove(position);
+        items.add(position, model);
+        return position;
+    }
+
+    @Benchmark
+    public int removeByModelIndexed() {
+        Object model = nextModel();
+        int position = index.indexOf(model, items);
+        index.onRemoved(position, items.remove(position));
+        items.add(position, model);
+        index.onInserted(position, 1, items);
+        return position;
+    }
+}
@@ -0,0 +1,324 @@
+package pro.oncreate.truerecycler;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * List stored in chunks of bounded size. Inserting a page at any position moves
+ * at most one chunk of items and the references to chunks, instead of all items after the position,
+ * so prepending pages to long lists is cheap. get(int) finds the chunk by binary search
+ * over chunk starts, sequential access hits the last used chunk.
+ *
+ * @see ItemStore#setStorage(List)
+ */
+
+public class ChunkedList<T> extends AbstractList<T> {
+
+    private static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final int chunkSize;
+
+    private final ArrayList<Chunk> chunks = new ArrayList<>();
+
+    /**
+     * Position of the first item of every chunk, valid for chunks before validStarts.
+     */
+    private int[] starts = new int[8];
+
+    private int validStarts;
+
+    private int size;
+
+    /**
+     * Index of the last used chunk.
+     */
+    private int lastChunk;
+
+    public ChunkedList() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize max number of items in one chunk.
+     */
+    public ChunkedList(int chunkSize) {
+        if (chunkSize < 2)
+            throw new IllegalArgumentException("Chunk size must be at least 2");
+        this.chunkSize = chunkSize;
+    }
+
+    public ChunkedList(Collection<? extends T> collection) {
+        this();
+        addAll(collection);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        checkIndex(index);
+        int chunk = findChunk(index);
+        return (T) chunks.get(chunk).items[index - starts[chunk]];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T set(int index, T element) {
+        checkIndex(index);
+        int chunk = findChunk(index);
+        Object[] items = chunks.get(chunk).items;
+        int offset = index - starts[chunk];
+        T old = (T) items[offset];
+        items[offset] = element;
+        return old;
+    }
+
+    @Override
+    public boolean add(T element) {
+        Chunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (last == null || last.size == chunkSize) {
+            last = new Chunk(chunkSize);
+            chunks.add(last);
+        }
+        last.items[last.size++] = element;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        if (index == size) {
+            add(element);
+            return;
+        }
+        checkIndex(index);
+        int chunkIndex = findChunk(index);
+        Chunk chunk = chunks.get(chunkIndex);
+        int offset = index - starts[chunkIndex];
+        if (chunk.size == chunkSize) {
+            // Split full chunk in halves
+            Chunk tail = chunk.split(chunkSize / 2, chunkSize);
+            chunks.add(chunkIndex + 1, tail);
+            if (offset > chunk.size) {
+                offset -= chunk.size;
+                chunk = tail;
+            }
+        }
+        chunk.insert(offset, element);
+        size++;
+        modCount++;
+        invalidateStarts(chunkIndex + 1);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        return addAll(size, collection);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> collection) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        Object[] added = collection.toArray();
+        if (added.length == 0)
+            return false;
+        int chunkIndex;
+        if (index == size) {
+            chunkIndex = chunks.size();
+            // Fill the free space of the last chunk first
+            if (chunkIndex > 0) {
+                Chunk last = chunks.get(chunkIndex - 1);
+                int fill = Math.min(chunkSize - last.size, added.length);
+                System.arraycopy(added, 0, last.items, last.size, fill);
+                last.size += fill;
+                size += fill;
+                modCount++;
+                if (fill == added.length)
+                    return true;
+                added = Arrays.copyOfRange(added, fill, added.length);
+            }
+        } else {
+            chunkIndex = findChunk(index);
+            int offset = index - starts[chunkIndex];
+            Chunk chunk = chunks.get(chunkIndex);
+            if (offset == 0 && chunkIndex > 0 && chunks.get(chunkIndex - 1).size + added.length <= chunkSize) {
+                // Append to the end of the previous chunk, it doesn't move items
+                chunk = chunks.get(--chunkIndex);
+                offset = chunk.size;
+            }
+            if (chunk.size + added.length <= chunkSize) {
+                chunk.insert(offset, added);
+                size += added.length;
+                modCount++;
+                invalidateStarts(chunkIndex + 1);
+                return true;
+            }
+            if (offset > 0)
+                chunks.add(++chunkIndex, chunk.split(offset, chunkSize));
+        }
+        int count = (added.length + chunkSize - 1) / chunkSize;
+        List<Chunk> newChunks = new ArrayList<>(count);
+        for (int from = 0; from < added.length; from += chunkSize) {
+            Chunk chunk = new Chunk(chunkSize);
+            chunk.size = Math.min(chunkSize, added.length - from);
+            System.arraycopy(added, from, chunk.items, 0, chunk.size);
+            newChunks.add(chunk);
+        }
+        chunks.addAll(chunkIndex, newChunks);
+        size += added.length;
+        modCount++;
+        invalidateStarts(chunkIndex);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove(int index) {
+        checkIndex(index);
+        int chunkIndex = findChunk(index);
+        Chunk chunk = chunks.get(chunkIndex);
+        T removed = (T) chunk.remove(index - starts[chunkIndex], 1);
+        if (chunk.size == 0)
+            chunks.remove(chunkIndex);
+        size--;
+        modCount++;
+        invalidateStarts(chunkIndex + 1);
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex)
+            return;
+        int chunkIndex = findChunk(fromIndex);
+        int offset = fromIndex - starts[chunkIndex];
+        int remaining = toIndex - fromIndex;
+        int firstChanged = chunkIndex;
+        while (remaining > 0) {
+            Chunk chunk = chunks.get(chunkIndex);
+            int count = Math.min(remaining, chunk.size - offset);
+            if (count == chunk.size) {
+                chunks.remove(chunkIndex);
+            } else {
+                chunk.remove(offset, count);
+                chunkIndex++;
+            }
+            remaining -= count;
+            offset = 0;
+        }
+        size -= toIndex - fromIndex;
+        modCount++;
+        invalidateStarts(firstChanged);
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+        size = 0;
+        validStarts = 0;
+        lastChunk = 0;
+        modCount++;
+    }
+
+    /**
+     * @return index of the chunk with the item, starts are valid up to the result.
+     */
+    private int findChunk(int index) {
+        if (lastChunk < validStarts && index >= starts[lastChunk]) {
+            if (index < starts[lastChunk] + chunks.get(lastChunk).size)
+                return lastChunk;
+            // Sequential access moves to the next chunk
+            int next = lastChunk + 1;
+            if (next < validStarts && index < starts[next] + chunks.get(next).size)
+                return lastChunk = next;
+        }
+        if (validStarts < chunks.size() && (validStarts == 0
+                || index >= starts[validStarts - 1] + chunks.get(validStarts - 1).size))
+            updateStarts();
+        int low = 0;
+        int high = validStarts - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= index)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        lastChunk = low;
+        return low;
+    }
+
+    private void updateStarts() {
+        if (starts.length < chunks.size())
+            starts = Arrays.copyOf(starts, Math.max(chunks.size(), starts.length * 2));
+        int start = validStarts == 0 ? 0 : starts[validStarts - 1] + chunks.get(validStarts - 1).size;
+        for (int i = validStarts; i < chunks.size(); i++) {
+            starts[i] = start;
+            start += chunks.get(i).size;
+        }
+        validStarts = chunks.size();
+    }
+
+    private void invalidateStarts(int chunkIndex) {
+        validStarts = Math.min(validStarts, chunkIndex);
+        if (lastChunk >= validStarts)
+            lastChunk = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private static class Chunk {
+        final Object[] items;
+        int size;
+
+        Chunk(int capacity) {
+            items = new Object[capacity];
+        }
+
+        void insert(int offset, Object item) {
+            System.arraycopy(items, offset, items, offset + 1, size - offset);
+            items[offset] = item;
+            size++;
+        }
+
+        void insert(int offset, Object[] added) {
+            System.arraycopy(items, offset, items, offset + added.length, size - offset);
+            System.arraycopy(added, 0, items, offset, added.length);
+            size += added.length;
+        }
+
+        Object remove(int offset, int count) {
+            Object removed = items[offset];
+            System.arraycopy(items, offset + count, items, offset, size - offset - count);
+            Arrays.fill(items, size - count, size, null);
+            size -= count;
+            return removed;
+        }
+
+        /**
+         * Move items from the offset to a new chunk.
+         */
+        Chunk split(int offset, int capacity) {
+            Chunk tail = new Chunk(capacity);
+            tail.size = size - offset;
+            System.arraycopy(items, offset, tail.items, 0, tail.size);
+            Arrays.fill(items, offset, size, null);
+            size = offset;
+            return tail;
+        }
+    }
+}
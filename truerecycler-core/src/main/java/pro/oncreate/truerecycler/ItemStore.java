@@ -0,0 +1,270 @@
+package pro.oncreate.truerecycler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Items, headers and footers of the adapter and the math of adapter positions.
+ * Adapter positions are headers, then items, then footers.
+ * Mutations keep the position index in sync, notifications are sent by the adapter.
+ */
+
+public class ItemStore<T> {
+
+    /**
+     * Position of a missing item.
+     */
+    public static final int POSITION_NONE = -1;
+
+    /**
+     * Kinds of rows returned by getRowType(int).
+     */
+    public static final int ROW_HEADER = 1000;
+    public static final int ROW_ITEM = 0;
+    public static final int ROW_FOOTER = -1000;
+
+    private List<T> items = new ArrayList<>();
+
+    private final List<Object> headers = new ArrayList<>();
+
+    private final List<Object> footers = new ArrayList<>();
+
+    /**
+     * Index of items positions, null if disabled.
+     */
+    private PositionIndex<T> positionIndex;
+
+    /**
+     * Items keys, null - search by key is not available.
+     */
+    private KeyExtractor<T> keyExtractor;
+
+
+    //
+    // Collections
+    //
+
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public List<Object> getHeaders() {
+        return headers;
+    }
+
+    public List<Object> getFooters() {
+        return footers;
+    }
+
+    /**
+     * Replace backing list of items, current items are moved to it.
+     *
+     * @param storage list owned by the store after call, for example ChunkedList.
+     */
+    public void setStorage(List<T> storage) {
+        if (storage == items)
+            return;
+        storage.clear();
+        storage.addAll(items);
+        items = storage;
+        invalidatePositionIndex();
+    }
+
+
+    //
+    // Position math
+    //
+
+
+    /**
+     * @return count of headers, items and footers.
+     */
+    public int getCount() {
+        return headers.size() + items.size() + footers.size();
+    }
+
+    public int getItemsSize() {
+        return items.size();
+    }
+
+    /**
+     * @return ROW_HEADER, ROW_ITEM or ROW_FOOTER.
+     */
+    public int getRowType(int adapterPosition) {
+        if (adapterPosition < headers.size())
+            return ROW_HEADER;
+        else if (adapterPosition >= headers.size() + items.size())
+            return ROW_FOOTER;
+        else
+            return ROW_ITEM;
+    }
+
+    /**
+     * @return position in items collection.
+     */
+    public int toItemPosition(int adapterPosition) {
+        return adapterPosition - headers.size();
+    }
+
+    /**
+     * @return position in footers collection.
+     */
+    public int toFooterPosition(int adapterPosition) {
+        return adapterPosition - headers.size() - items.size();
+    }
+
+    /**
+     * @param itemPosition position in items collection.
+     * @return position in adapter.
+     */
+    public int toAdapterPosition(int itemPosition) {
+        return headers.size() + itemPosition;
+    }
+
+
+    //
+    // Mutations
+    //
+
+
+    /**
+     * @return position of the added item.
+     */
+    public int add(T item) {
+        int position = items.size();
+        items.add(item);
+        onInserted(position, 1);
+        return position;
+    }
+
+    public void add(int position, T item) {
+        items.add(position, item);
+        onInserted(position, 1);
+    }
+
+    /**
+     * @return position of the first added item.
+     */
+    public int addAll(Collection<? extends T> collection) {
+        int position = items.size();
+        items.addAll(collection);
+        onInserted(position, items.size() - position);
+        return position;
+    }
+
+    public void addAll(int position, Collection<? extends T> collection) {
+        int oldSize = items.size();
+        items.addAll(position, collection);
+        onInserted(position, items.size() - oldSize);
+    }
+
+    public T remove(int position) {
+        T removed = items.remove(position);
+        if (positionIndex != null)
+            positionIndex.onRemoved(position, removed);
+        return removed;
+    }
+
+    /**
+     * @return replaced item.
+     */
+    public T replace(int position, T item) {
+        T oldItem = items.set(position, item);
+        if (positionIndex != null)
+            positionIndex.onReplaced(position, oldItem, item, items);
+        return oldItem;
+    }
+
+    /**
+     * Replace all items.
+     */
+    public void set(Collection<? extends T> collection) {
+        items.clear();
+        items.addAll(collection);
+        invalidatePositionIndex();
+    }
+
+    public void clear() {
+        items.clear();
+        invalidatePositionIndex();
+    }
+
+
+    //
+    // Position index
+    //
+
+
+    /**
+     * @param enabled true - index items positions, false - use linear search.
+     */
+    public void setPositionIndexEnabled(boolean enabled) {
+        if (enabled && positionIndex == null)
+            positionIndex = new PositionIndex<>(keyExtractor);
+        else if (!enabled)
+            positionIndex = null;
+    }
+
+    public boolean isPositionIndexEnabled() {
+        return positionIndex != null;
+    }
+
+    /**
+     * Call after direct changes of items collection.
+     */
+    public void invalidatePositionIndex() {
+        if (positionIndex != null)
+            positionIndex.reset();
+    }
+
+    public void setKeyExtractor(KeyExtractor<T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        if (positionIndex != null)
+            positionIndex = new PositionIndex<>(keyExtractor);
+    }
+
+    public KeyExtractor<T> getKeyExtractor() {
+        return keyExtractor;
+    }
+
+    /**
+     * @return position of the first occurrence of the item instance or POSITION_NONE.
+     */
+    public int indexOf(T item) {
+        if (positionIndex != null)
+            return positionIndex.indexOf(item, items);
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == item)
+                return i;
+        }
+        return POSITION_NONE;
+    }
+
+    /**
+     * @return position of the first item with the key or POSITION_NONE.
+     */
+    public int indexOfKey(long key) {
+        if (keyExtractor == null)
+            throw new IllegalStateException("Set key extractor before search by key");
+        if (positionIndex != null)
+            return positionIndex.indexOfKey(key, items);
+        for (int i = 0; i < items.size(); i++) {
+            if (keyExtractor.getKey(items.get(i)) == key)
+                return i;
+        }
+        return POSITION_NONE;
+    }
+
+    /**
+     * Items [position, position + count) were inserted to items collection.
+     */
+    void onInserted(int position, int count) {
+        if (positionIndex != null && count > 0)
+            positionIndex.onInserted(position, count, items);
+    }
+}
@@ -0,0 +1,17 @@
+package pro.oncreate.truerecycler;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ */
+
+public interface KeyExtractor<T> {
+
+    /**
+     * Key must be unique in items collection and must not change while item is in adapter.
+     * Keys less than TrueRecyclerAdapter.RESERVED_ID_MAX are reserved for headers and footers.
+     *
+     * @return unique stable key of the item
+     */
+    long getKey(T item);
+}
@@ -0,0 +1,114 @@
+package pro.oncreate.truerecycler;
+
+import java.util.Arrays;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Map of primitive long keys with open addressing and linear probing, so keys are not boxed
+ * and put, get and remove don't allocate until the table grows. Removal shifts the following
+ * entries back instead of leaving tombstones. Values must not be null.
+ */
+
+class LongObjectMap<V> {
+
+    private long[] keys;
+
+    /**
+     * Null marks an empty slot.
+     */
+    private Object[] values;
+
+    private int mask;
+
+    private int size;
+
+    LongObjectMap() {
+        keys = new long[16];
+        values = new Object[16];
+        mask = 15;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return (V) values[i];
+        }
+        return null;
+    }
+
+    void put(long key, V value) {
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        // Load factor is kept not greater than 1/2
+        if (++size > (mask + 1) >> 1)
+            grow();
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                break;
+        }
+        V removed = (V) values[i];
+        if (removed == null)
+            return null;
+        values[i] = null;
+        size--;
+        // Move back entries of the probe chain that can't be found behind the emptied slot
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (j > i ? home <= i || home > j : home <= i && home > j) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+            int j = slot(oldKeys[i]);
+            while (values[j] != null)
+                j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,379 @@
+package pro.oncreate.truerecycler;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Identity index of the positions in items collection.
+ * Items can be found by instance or by key of the KeyExtractor.
+ * Every item has a node in an implicit treap that mirrors the order of the collection,
+ * so lookup, insertion and removal at any position take O(log n).
+ * Occurrences of the same item or key are linked in a list headed by the first of them,
+ * so duplicates never force a rebuild. When the first occurrence is removed,
+ * the next one is found in this list on the next lookup.
+ * The index is built lazily on the first lookup.
+ * Keys are stored unboxed and nodes of removed items are reused, so lookups, replacements
+ * and insertions after removals don't allocate. Growth of the collection and rebuild after reset do.
+ */
+
+class PositionIndex<T> {
+
+    private static final class Node<T> {
+        int priority;
+        Node<T> left, right, parent;
+        int size = 1;
+
+        // Other occurrences of the same item and of the same key
+        Node<T> itemPrev, itemNext, keyPrev, keyNext;
+
+        // Head of the list is known to be the first occurrence
+        boolean firstItem = true, firstKey = true;
+
+        Node(int priority) {
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Maximum number of removed nodes kept for reuse.
+     */
+    private static final int MAX_FREE_NODES = 1024;
+
+    /**
+     * Head of the list of occurrences of each item.
+     */
+    private final IdentityHashMap<T, Node<T>> nodes = new IdentityHashMap<>();
+
+    /**
+     * Head of the list of occurrences of each key, empty without key extractor.
+     */
+    private final LongObjectMap<Node<T>> keyNodes = new LongObjectMap<>();
+
+    private final KeyExtractor<T> keyExtractor;
+
+    private Node<T> root;
+
+    private boolean built;
+
+    private int seed = 0x2545F491;
+
+    /**
+     * Removed nodes linked by the right field.
+     */
+    private Node<T> freeNodes;
+
+    private int freeCount;
+
+    // Result of split(), kept in fields to not allocate pairs
+    private Node<T> splitLeft, splitRight;
+
+    /**
+     * @param keyExtractor nullable, enables search by key.
+     */
+    PositionIndex(KeyExtractor<T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * @return position of the first occurrence of the model or ItemStore.POSITION_NONE.
+     */
+    int indexOf(T model, List<T> items) {
+        if (!built)
+            build(items);
+        Node<T> node = nodes.get(model);
+        if (node == null)
+            return ItemStore.POSITION_NONE;
+        if (!node.firstItem) {
+            node = findFirstItem(node);
+            nodes.put(model, node);
+        }
+        return rank(node);
+    }
+
+    /**
+     * @return position of the first item with the key or ItemStore.POSITION_NONE.
+     */
+    int indexOfKey(long key, List<T> items) {
+        if (!built)
+            build(items);
+        Node<T> node = keyNodes.get(key);
+        if (node == null)
+            return ItemStore.POSITION_NONE;
+        if (!node.firstKey) {
+            node = findFirstKey(node);
+            keyNodes.put(key, node);
+        }
+        return rank(node);
+    }
+
+    /**
+     * Items were inserted to the collection.
+     */
+    void onInserted(int position, int count, List<T> items) {
+        if (!built)
+            return;
+        for (int i = position; i < position + count; i++)
+            insert(i, items.get(i));
+    }
+
+    /**
+     * Item was removed from the collection.
+     */
+    void onRemoved(int position, T model) {
+        if (!built)
+            return;
+        split(root, position);
+        Node<T> left = splitLeft;
+        split(splitRight, 1);
+        Node<T> removed = splitLeft;
+        root = merge(left, splitRight);
+        if (root != null)
+            root.parent = null;
+        if (removed.itemPrev != null) {
+            removed.itemPrev.itemNext = removed.itemNext;
+            if (removed.itemNext != null)
+                removed.itemNext.itemPrev = removed.itemPrev;
+        } else if (removed.itemNext == null) {
+            nodes.remove(model);
+        } else {
+            // The first of the left occurrences is found on the next lookup
+            Node<T> next = removed.itemNext;
+            next.itemPrev = null;
+            next.firstItem = false;
+            nodes.put(model, next);
+        }
+        if (keyExtractor == null) {
+            recycle(removed);
+            return;
+        }
+        if (removed.keyPrev != null) {
+            removed.keyPrev.keyNext = removed.keyNext;
+            if (removed.keyNext != null)
+                removed.keyNext.keyPrev = removed.keyPrev;
+        } else if (removed.keyNext == null) {
+            keyNodes.remove(keyExtractor.getKey(model));
+        } else {
+            Node<T> next = removed.keyNext;
+            next.keyPrev = null;
+            next.firstKey = false;
+            keyNodes.put(keyExtractor.getKey(model), next);
+        }
+        recycle(removed);
+    }
+
+    /**
+     * Item at the position was replaced by other item.
+     */
+    void onReplaced(int position, T oldModel, T newModel, List<T> items) {
+        onRemoved(position, oldModel);
+        onInserted(position, 1, items);
+    }
+
+    /**
+     * Collection was changed completely.
+     */
+    void reset() {
+        nodes.clear();
+        keyNodes.clear();
+        root = null;
+        built = false;
+    }
+
+    private Node<T> obtain() {
+        Node<T> node = freeNodes;
+        if (node == null)
+            return new Node<>(nextPriority());
+        freeNodes = node.right;
+        freeCount--;
+        node.right = null;
+        node.size = 1;
+        node.firstItem = node.firstKey = true;
+        node.priority = nextPriority();
+        return node;
+    }
+
+    private void recycle(Node<T> node) {
+        node.left = node.parent = null;
+        node.itemPrev = node.itemNext = node.keyPrev = node.keyNext = null;
+        if (freeCount == MAX_FREE_NODES) {
+            node.right = null;
+            return;
+        }
+        node.right = freeNodes;
+        freeNodes = node;
+        freeCount++;
+    }
+
+    private void build(List<T> items) {
+        built = true;
+        for (int i = 0; i < items.size(); i++)
+            insert(i, items.get(i));
+    }
+
+    private void insert(int position, T item) {
+        Node<T> node = obtain();
+        split(root, position);
+        root = merge(merge(splitLeft, node), splitRight);
+        root.parent = null;
+        Node<T> head = nodes.get(item);
+        if (head == null) {
+            nodes.put(item, node);
+        } else if (head.firstItem && rank(head) > position) {
+            node.itemNext = head;
+            head.itemPrev = node;
+            head.firstItem = false;
+            nodes.put(item, node);
+        } else {
+            node.firstItem = false;
+            node.itemPrev = head;
+            node.itemNext = head.itemNext;
+            if (head.itemNext != null)
+                head.itemNext.itemPrev = node;
+            head.itemNext = node;
+        }
+        if (keyExtractor == null)
+            return;
+        long key = keyExtractor.getKey(item);
+        head = keyNodes.get(key);
+        if (head == null) {
+            keyNodes.put(key, node);
+        } else if (head.firstKey && rank(head) > position) {
+            node.keyNext = head;
+            head.keyPrev = node;
+            head.firstKey = false;
+            keyNodes.put(key, node);
+        } else {
+            node.firstKey = false;
+            node.keyPrev = head;
+            node.keyNext = head.keyNext;
+            if (head.keyNext != null)
+                head.keyNext.keyPrev = node;
+            head.keyNext = node;
+        }
+    }
+
+    /**
+     * @param head any occurrence of the item.
+     * @return the first occurrence, moved to the head of the list.
+     */
+    private Node<T> findFirstItem(Node<T> head) {
+        Node<T> first = head;
+        int firstRank = rank(first);
+        for (Node<T> n = head.itemNext; n != null; n = n.itemNext) {
+            int rank = rank(n);
+            if (rank < firstRank) {
+                first = n;
+                firstRank = rank;
+            }
+        }
+        if (first != head) {
+            first.itemPrev.itemNext = first.itemNext;
+            if (first.itemNext != null)
+                first.itemNext.itemPrev = first.itemPrev;
+            first.itemPrev = null;
+            first.itemNext = head;
+            head.itemPrev = first;
+        }
+        first.firstItem = true;
+        return first;
+    }
+
+    /**
+     * @param head any occurrence of the key.
+     * @return the first occurrence, moved to the head of the list.
+     */
+    private Node<T> findFirstKey(Node<T> head) {
+        Node<T> first = head;
+        int firstRank = rank(first);
+        for (Node<T> n = head.keyNext; n != null; n = n.keyNext) {
+            int rank = rank(n);
+            if (rank < firstRank) {
+                first = n;
+                firstRank = rank;
+            }
+        }
+        if (first != head) {
+            first.keyPrev.keyNext = first.keyNext;
+            if (first.keyNext != null)
+                first.keyNext.keyPrev = first.keyPrev;
+            first.keyPrev = null;
+            first.keyNext = head;
+            head.keyPrev = first;
+        }
+        first.firstKey = true;
+        return first;
+    }
+
+    private int rank(Node<T> node) {
+        int rank = size(node.left);
+        for (Node<T> n = node; n.parent != null; n = n.parent) {
+            if (n.parent.right == n)
+                rank += size(n.parent.left) + 1;
+        }
+        return rank;
+    }
+
+    /**
+     * Split tree to first count nodes (splitLeft) and others (splitRight).
+     */
+    private void split(Node<T> node, int count) {
+        if (node == null) {
+            splitLeft = splitRight = null;
+            return;
+        }
+        if (size(node.left) < count) {
+            split(node.right, count - size(node.left) - 1);
+            node.right = splitLeft;
+            if (splitLeft != null)
+                splitLeft.parent = node;
+            update(node);
+            node.parent = null;
+            splitLeft = node;
+        } else {
+            split(node.left, count);
+            node.left = splitRight;
+            if (splitRight != null)
+                splitRight.parent = node;
+            update(node);
+            node.parent = null;
+            splitRight = node;
+        }
+    }
+
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null)
+            return right;
+        if (right == null)
+            return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.right.parent = left;
+            update(left);
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.left.parent = right;
+            update(right);
+            return right;
+        }
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    private int nextPriority() {
+        // xorshift, enough to keep the tree balanced
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
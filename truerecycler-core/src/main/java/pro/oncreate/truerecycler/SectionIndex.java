@@ -0,0 +1,126 @@
+package pro.oncreate.truerecycler;
+
+import java.util.Arrays;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Fenwick tree of section sizes. Maps position to section and section to its first position
+ * in O(log n), change of section size is O(log n). Adding a section at the end is O(log n),
+ * inserting or removing a section in the middle rebuilds the tree in O(n).
+ */
+
+class SectionIndex {
+
+    /**
+     * 1-based Fenwick tree, tree[i] is the sum of sizes of sections (i - lowbit(i), i].
+     */
+    private int[] tree = new int[16];
+
+    private int[] sizes = new int[16];
+
+    private int count;
+
+    private int total;
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return sum of all section sizes.
+     */
+    int getTotal() {
+        return total;
+    }
+
+    int getSize(int section) {
+        return sizes[section];
+    }
+
+    /**
+     * @return position of the first row of the section.
+     */
+    int getStart(int section) {
+        int sum = 0;
+        for (int i = section; i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * @param position in [0, total).
+     * @return section containing the position, empty sections are skipped.
+     */
+    int findSection(int position) {
+        int index = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(Math.max(count, 1)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= count && tree[next] <= remaining) {
+                index = next;
+                remaining -= tree[next];
+            }
+        }
+        return index;
+    }
+
+    void setSize(int section, int size) {
+        int delta = size - sizes[section];
+        if (delta == 0)
+            return;
+        sizes[section] = size;
+        total += delta;
+        for (int i = section + 1; i <= count; i += i & -i)
+            tree[i] += delta;
+    }
+
+    void insert(int section, int size) {
+        ensureCapacity(count + 1);
+        if (section == count) {
+            sizes[count++] = size;
+            total += size;
+            // tree[n] covers (n - lowbit(n), n]
+            int n = count;
+            tree[n] = size + getStart(n - 1) - getStart(n - (n & -n));
+            return;
+        }
+        System.arraycopy(sizes, section, sizes, section + 1, count - section);
+        sizes[section] = size;
+        count++;
+        total += size;
+        rebuild();
+    }
+
+    void remove(int section) {
+        total -= sizes[section];
+        System.arraycopy(sizes, section + 1, sizes, section, count - section - 1);
+        count--;
+        rebuild();
+    }
+
+    void clear() {
+        count = 0;
+        total = 0;
+    }
+
+    private void rebuild() {
+        Arrays.fill(tree, 0, count + 1, 0);
+        for (int i = 1; i <= count; i++) {
+            tree[i] += sizes[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= count)
+                tree[parent] += tree[i];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (sizes.length < capacity) {
+            sizes = Arrays.copyOf(sizes, capacity * 2);
+            tree = Arrays.copyOf(tree, capacity * 2 + 1);
+        } else if (tree.length < capacity + 1) {
+            tree = Arrays.copyOf(tree, capacity * 2 + 1);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks ChunkedList against ArrayList,
+ * speed is measured by ChunkedListBenchmark.
+ */
+public class ChunkedListTest {
+
+    private static final int PAGE = 20;
+
+    @Test
+    public void operations_matchArrayList() throws Exception {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ChunkedList<>(8);
+        int next = 0;
+        for (int step = 0; step < 20000; step++) {
+            int op = random.nextInt(10);
+            if (op < 3 || expected.isEmpty()) {
+                int position = random.nextInt(expected.size() + 1);
+                expected.add(position, next);
+                actual.add(position, next++);
+            } else if (op < 5) {
+                int position = random.nextInt(expected.size() + 1);
+                List<Integer> page = new ArrayList<>();
+                for (int i = random.nextInt(PAGE); i >= 0; i--)
+                    page.add(next++);
+                expected.addAll(position, page);
+                actual.addAll(position, page);
+            } else if (op < 7) {
+                int position = random.nextInt(expected.size());
+                assertEquals(expected.remove(position), actual.remove(position));
+            } else if (op < 8) {
+                int from = random.nextInt(expected.size());
+                int to = from + random.nextInt(Math.min(PAGE, expected.size() - from) + 1);
+                expected.subList(from, to).clear();
+                actual.subList(from, to).clear();
+            } else {
+                int position = random.nextInt(expected.size());
+                assertEquals(expected.set(position, next), actual.set(position, next++));
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+    }
+}
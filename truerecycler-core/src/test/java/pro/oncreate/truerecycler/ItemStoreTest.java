@@ -0,0 +1,80 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks position math and the position index of ItemStore after random mutations.
+ */
+public class ItemStoreTest {
+
+    @Test
+    public void positions_ofHeadersItemsAndFooters() throws Exception {
+        ItemStore<String> store = new ItemStore<>();
+        store.getHeaders().add("h");
+        store.getFooters().add("f1");
+        store.getFooters().add("f2");
+        store.set(Arrays.asList("a", "b", "c"));
+
+        assertEquals(6, store.getCount());
+        assertEquals(ItemStore.ROW_HEADER, store.getRowType(0));
+        assertEquals(ItemStore.ROW_ITEM, store.getRowType(1));
+        assertEquals(ItemStore.ROW_ITEM, store.getRowType(3));
+        assertEquals(ItemStore.ROW_FOOTER, store.getRowType(4));
+        assertEquals(2, store.toItemPosition(3));
+        assertEquals(1, store.toFooterPosition(5));
+        assertEquals(3, store.toAdapterPosition(2));
+    }
+
+    @Test
+    public void index_matchesItemsAfterMutations() throws Exception {
+        Random random = new Random(42);
+        ItemStore<Long> store = new ItemStore<>();
+        store.setStorage(new ChunkedList<Long>());
+        store.setKeyExtractor(new KeyExtractor<Long>() {
+            @Override
+            public long getKey(Long item) {
+                return item;
+            }
+        });
+        store.setPositionIndexEnabled(true);
+        List<Long> expected = new ArrayList<>();
+        long nextId = 0;
+        for (int step = 0; step < 3000; step++) {
+            int op = random.nextInt(6);
+            if (op == 0 || expected.isEmpty()) {
+                Long item = nextId++;
+                expected.add(item);
+                assertEquals(expected.size() - 1, store.add(item));
+            } else if (op == 1) {
+                int position = random.nextInt(expected.size() + 1);
+                List<Long> page = new ArrayList<>();
+                for (int i = random.nextInt(4); i >= 0; i--)
+                    page.add(nextId++);
+                expected.addAll(position, page);
+                store.addAll(position, page);
+            } else if (op == 2) {
+                int position = random.nextInt(expected.size());
+                assertEquals(expected.remove(position), store.remove(position));
+            } else if (op == 3) {
+                int position = random.nextInt(expected.size());
+                Long item = nextId++;
+                expected.set(position, item);
+                store.replace(position, item);
+            } else {
+                int position = random.nextInt(expected.size());
+                Long item = expected.get(position);
+                assertEquals(position, store.indexOf(item));
+                assertEquals(position, store.indexOfKey(item));
+            }
+        }
+        assertEquals(expected, store.getItems());
+        assertEquals(ItemStore.POSITION_NONE, store.indexOfKey(nextId));
+    }
+}
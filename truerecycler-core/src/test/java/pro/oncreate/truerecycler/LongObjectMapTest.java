@@ -0,0 +1,42 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks LongObjectMap against HashMap with colliding keys, removals and growth.
+ */
+public class LongObjectMapTest {
+
+    @Test
+    public void operations_matchHashMap() throws Exception {
+        Random random = new Random(42);
+        Map<Long, Integer> expected = new HashMap<>();
+        LongObjectMap<Integer> map = new LongObjectMap<>();
+        for (int step = 0; step < 20000; step++) {
+            // Small range of keys to hit existing entries, multiples of the table size to collide
+            long key = random.nextBoolean() ? random.nextInt(300) - 150 : (long) random.nextInt(64) << 32;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                map.put(key, step);
+                expected.put(key, step);
+            } else if (op == 1) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Integer> entry : expected.entrySet())
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(null, map.get(0));
+    }
+}
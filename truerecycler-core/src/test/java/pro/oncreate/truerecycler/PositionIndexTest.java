@@ -0,0 +1,92 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks PositionIndex against the linear search,
+ * speed is measured by PositionIndexBenchmark.
+ */
+public class PositionIndexTest {
+
+    @Test
+    public void indexOf_matchesLinearSearch() throws Exception {
+        Random random = new Random(42);
+        List<Object> items = new ArrayList<>();
+        PositionIndex<Object> index = new PositionIndex<>(null);
+        index.indexOf(new Object(), items);
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4 || items.isEmpty()) {
+                int position = random.nextInt(items.size() + 1);
+                // Sometimes add the same instance twice
+                Object item = !items.isEmpty() && op == 0 ? items.get(random.nextInt(items.size())) : new Object();
+                items.add(position, item);
+                index.onInserted(position, 1, items);
+            } else if (op < 7) {
+                int position = random.nextInt(items.size());
+                index.onRemoved(position, items.remove(position));
+            } else if (op < 9) {
+                Object item = items.get(random.nextInt(items.size()));
+                assertEquals(linearIndexOf(items, item), index.indexOf(item, items));
+            } else {
+                assertEquals(ItemStore.POSITION_NONE, index.indexOf(new Object(), items));
+            }
+        }
+    }
+
+    @Test
+    public void indexOfKey_withDuplicateKeys_matchesLinearSearch() throws Exception {
+        Random random = new Random(7);
+        KeyExtractor<Long> keys = new KeyExtractor<Long>() {
+            @Override
+            public long getKey(Long item) {
+                return item;
+            }
+        };
+        List<Long> items = new ArrayList<>();
+        PositionIndex<Long> index = new PositionIndex<>(keys);
+        index.indexOfKey(0, items);
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4 || items.isEmpty()) {
+                int position = random.nextInt(items.size() + 1);
+                // Few keys, so most of them are duplicated
+                items.add(position, Long.valueOf(random.nextInt(8)));
+                index.onInserted(position, 1, items);
+            } else if (op < 6) {
+                // Remove the first occurrence, as the index must find the next one
+                long key = items.get(random.nextInt(items.size()));
+                int position = linearIndexOfKey(items, key);
+                index.onRemoved(position, items.remove(position));
+            } else if (op < 7) {
+                int position = random.nextInt(items.size());
+                index.onRemoved(position, items.remove(position));
+            } else {
+                long key = random.nextInt(10);
+                assertEquals(linearIndexOfKey(items, key), index.indexOfKey(key, items));
+            }
+        }
+    }
+
+    private static int linearIndexOfKey(List<Long> items, long key) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == key)
+                return i;
+        }
+        return ItemStore.POSITION_NONE;
+    }
+
+    private static int linearIndexOf(List<Object> items, Object model) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == model)
+                return i;
+        }
+        return ItemStore.POSITION_NONE;
+    }
+}
@@ -0,0 +1,61 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks SectionIndex against prefix sums recomputed from the list of section sizes.
+ */
+public class SectionIndexTest {
+
+    @Test
+    public void mapping_matchesPrefixSums() throws Exception {
+        Random random = new Random(42);
+        List<Integer> sizes = new ArrayList<>();
+        SectionIndex index = new SectionIndex();
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (op < 3 || sizes.isEmpty()) {
+                int size = random.nextInt(5);
+                sizes.add(size);
+                index.insert(index.getCount(), size);
+            } else if (op < 5) {
+                int section = random.nextInt(sizes.size() + 1);
+                int size = random.nextInt(5);
+                sizes.add(section, size);
+                index.insert(section, size);
+            } else if (op < 6) {
+                int section = random.nextInt(sizes.size());
+                sizes.remove(section);
+                index.remove(section);
+            } else {
+                int section = random.nextInt(sizes.size());
+                int size = random.nextInt(5);
+                sizes.set(section, size);
+                index.setSize(section, size);
+            }
+            if (random.nextInt(500) == 0) {
+                sizes.clear();
+                index.clear();
+            }
+            check(sizes, index);
+        }
+    }
+
+    private static void check(List<Integer> sizes, SectionIndex index) {
+        assertEquals(sizes.size(), index.getCount());
+        int start = 0;
+        for (int section = 0; section < sizes.size(); section++) {
+            assertEquals(start, index.getStart(section));
+            for (int position = start; position < start + sizes.get(section); position++)
+                assertEquals(section, index.findSection(position));
+            start += sizes.get(section);
+        }
+        assertEquals(start, index.getTotal());
+    }
+}
@@ -0,0 +1,256 @@
+package pro.oncreate.truerecycler;
+
+import android.util.SparseArray;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Timings of view holders creation and binding per view type, counts of mutator calls and notifications.
+ * Recorded on the main thread, read it in Listener#onMetrics(AdapterMetrics).
+ *
+ * @see TrueRecyclerAdapter#enableMetrics(AdapterMetrics.Listener)
+ */
+
+public class AdapterMetrics {
+
+    /**
+     * Receiver of metrics, for example telemetry.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the main thread on TrueRecyclerAdapter#reportMetrics() and when the adapter
+         * is detached from RecyclerView. Metrics are reset after the call.
+         */
+        void onMetrics(AdapterMetrics metrics);
+    }
+
+    /**
+     * Kinds of notifications sent to RecyclerView.
+     */
+    public enum Notify {
+        INSERTED, REMOVED, CHANGED, MOVED, DATA_SET_CHANGED
+    }
+
+    /**
+     * Public methods of the adapter changing items collection.
+     */
+    public enum Mutator {
+        /**
+         * add(Object)
+         */
+        ADD,
+        /**
+         * add(int, Object)
+         */
+        INSERT,
+        /**
+         * addAll(Collection)
+         */
+        ADD_ALL,
+        /**
+         * addAll(int, List)
+         */
+        INSERT_ALL,
+        /**
+         * set(Collection)
+         */
+        SET,
+        /**
+         * setPage(int, List)
+         */
+        SET_PAGE,
+        REMOVE, UPDATE, REPLACE, RESORT, CLEAR
+    }
+
+    private final SparseArray<TypeMetrics> types = new SparseArray<>();
+
+    private final int[] mutatorCalls = new int[Mutator.values().length];
+
+    private final int[] notifyCalls = new int[Notify.values().length];
+
+    private final long[] notifyItems = new long[Notify.values().length];
+
+    /**
+     * @return number of view types with created or bound holders.
+     */
+    public int getViewTypeCount() {
+        return types.size();
+    }
+
+    public int getViewType(int index) {
+        return types.keyAt(index);
+    }
+
+    /**
+     * @return metrics of the view type, null if it has no created or bound holders.
+     */
+    public TypeMetrics getTypeMetrics(int viewType) {
+        return types.get(viewType);
+    }
+
+    /**
+     * @return number of calls of the mutator by the user, internal calls of the adapter are not counted.
+     */
+    public int getMutatorCalls(Mutator mutator) {
+        return mutatorCalls[mutator.ordinal()];
+    }
+
+    /**
+     * @return number of calls of the notification method.
+     */
+    public int getNotifyCalls(Notify notify) {
+        return notifyCalls[notify.ordinal()];
+    }
+
+    /**
+     * @return number of items in all calls of the notification method.
+     */
+    public long getNotifyItems(Notify notify) {
+        return notifyItems[notify.ordinal()];
+    }
+
+    void onCreated(int viewType, long nanos) {
+        TypeMetrics metrics = getOrCreate(viewType);
+        metrics.creates.record(nanos);
+    }
+
+    /**
+     * @param pooled holder was taken from RecycledViewPool.
+     */
+    void onBound(int viewType, long nanos, boolean pooled) {
+        TypeMetrics metrics = getOrCreate(viewType);
+        metrics.binds.record(nanos);
+        if (pooled)
+            metrics.recycleHits++;
+    }
+
+    void onMutated(Mutator mutator) {
+        mutatorCalls[mutator.ordinal()]++;
+    }
+
+    void onNotified(Notify notify, int itemCount) {
+        notifyCalls[notify.ordinal()]++;
+        notifyItems[notify.ordinal()] += itemCount;
+    }
+
+    void reset() {
+        types.clear();
+        for (int i = 0; i < mutatorCalls.length; i++)
+            mutatorCalls[i] = 0;
+        for (int i = 0; i < notifyCalls.length; i++) {
+            notifyCalls[i] = 0;
+            notifyItems[i] = 0;
+        }
+    }
+
+    private TypeMetrics getOrCreate(int viewType) {
+        TypeMetrics metrics = types.get(viewType);
+        if (metrics == null) {
+            metrics = new TypeMetrics();
+            types.put(viewType, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Metrics of one view type.
+     */
+    public static class TypeMetrics {
+
+        final Histogram creates = new Histogram();
+        final Histogram binds = new Histogram();
+        int recycleHits;
+
+        /**
+         * @return latencies of onCreateViewHolder.
+         */
+        public Histogram getCreates() {
+            return creates;
+        }
+
+        /**
+         * @return latencies of onBindViewHolder, full and partial.
+         */
+        public Histogram getBinds() {
+            return binds;
+        }
+
+        /**
+         * @return number of binds of holders taken from RecycledViewPool, rebinds of shown holders
+         * and binds of new holders are not counted.
+         */
+        public int getRecycleHits() {
+            return recycleHits;
+        }
+    }
+
+    /**
+     * Latency histogram with buckets of powers of two microseconds.
+     */
+    public static class Histogram {
+
+        /**
+         * Bucket i counts latencies in [2^(i-1), 2^i) microseconds, bucket 0 - less than 1 microsecond.
+         */
+        private final int[] buckets = new int[32];
+
+        private int count;
+        private long totalNanos;
+        private long maxNanos;
+
+        void record(long nanos) {
+            long micros = nanos / 1000;
+            int bucket = micros == 0 ? 0 : Math.min(buckets.length - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets[bucket]++;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public int getBucketCount() {
+            return buckets.length;
+        }
+
+        /**
+         * @return number of latencies less than getBucketUpperMicros(bucket) and not less than the previous bound.
+         */
+        public int getBucket(int bucket) {
+            return buckets[bucket];
+        }
+
+        public static long getBucketUpperMicros(int bucket) {
+            return 1L << bucket;
+        }
+
+        /**
+         * @param percentile from 0 to 100.
+         * @return upper bound in microseconds of the bucket containing the percentile, 0 if empty.
+         */
+        public long getPercentileMicros(double percentile) {
+            if (count == 0)
+                return 0;
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && buckets[i] > 0)
+                    return getBucketUpperMicros(i);
+            }
+            return getBucketUpperMicros(buckets.length - 1);
+        }
+    }
+}
@@ -3,17 +3,10 @@ package pro.oncreate.truerecycler;
 /**
  * Created by Andrii Konovalenko, 2014-2017 years.
  * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ *
+ * @deprecated use {@link EmptyViewCallback}.
  */
 
-public interface EmptyViewAdapterInterface {
-
-    /**
-     * Show empty view
-     */
-    void empty();
-
-    /**
-     * Hide empty view
-     */
-    void reset();
+@Deprecated
+public interface EmptyViewAdapterInterface extends EmptyViewCallback {
 }
@@ -0,0 +1,23 @@
+package pro.oncreate.truerecycler;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Empty view shown by the adapter in EMPTY state.
+ * Views of other libraries, for example https://github.com/jaksab/EmptyView,
+ * are passed through an implementation that calls their methods.
+ */
+
+public interface EmptyViewCallback {
+
+    /**
+     * Show empty view
+     */
+    void empty();
+
+    /**
+     * Hide empty view
+     */
+    void reset();
+}
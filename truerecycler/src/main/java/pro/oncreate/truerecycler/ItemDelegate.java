@@ -0,0 +1,47 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Creates and binds view holders of one view type of items.
+ *
+ * @see TrueRecyclerAdapter#addDelegate(Class, ItemDelegate)
+ * @see TrueRecyclerAdapter#addDelegate(ItemDelegate)
+ * @see TrueRecyclerAdapter#addDelegate(int, Class, ItemDelegate)
+ */
+
+public abstract class ItemDelegate<M, H extends RecyclerView.ViewHolder> {
+
+    /**
+     * Used only for delegates added without model class.
+     *
+     * @param model    item of the adapter.
+     * @param position in items collection.
+     * @return true if this delegate presents the item.
+     */
+    public boolean isForItem(M model, int position) {
+        return false;
+    }
+
+    public abstract H onCreateViewHolder(ViewGroup parent);
+
+    /**
+     * @param position in adapter.
+     */
+    public abstract void onBindViewHolder(H holder, int position, M model);
+
+    /**
+     * Override this method for partial rebind of the changed item.
+     *
+     * @param payloads not empty payloads of the change.
+     */
+    public void onBindViewHolder(H holder, int position, M model, List<Object> payloads) {
+        onBindViewHolder(holder, position, model);
+    }
+}
@@ -0,0 +1,28 @@
+package pro.oncreate.truerecycler;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Predicate of the adapter filter, called on a background thread.
+ *
+ * @see TrueRecyclerAdapter#setFilter(ItemFilter)
+ */
+
+public abstract class ItemFilter<T> {
+
+    /**
+     * @return true if the item is shown for the query.
+     */
+    public abstract boolean matches(T item, CharSequence query);
+
+    /**
+     * Used to refine the previous result instead of filtering all items.
+     * By default the query is narrowing if it starts with the previous one.
+     *
+     * @return true if every item matching newQuery matches oldQuery.
+     */
+    public boolean isNarrowing(CharSequence oldQuery, CharSequence newQuery) {
+        return newQuery.toString().startsWith(oldQuery.toString());
+    }
+}
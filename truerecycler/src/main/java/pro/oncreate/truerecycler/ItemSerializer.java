@@ -0,0 +1,21 @@
+package pro.oncreate.truerecycler;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Writes and reads items of the adapter snapshot, called on a background thread.
+ *
+ * @see TrueRecyclerAdapter#saveSnapshot(java.io.File, ItemSerializer, android.support.v7.widget.RecyclerView)
+ */
+
+public interface ItemSerializer<T> {
+
+    void write(T item, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,72 @@
+package pro.oncreate.truerecycler;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Estimates how many items the user scrolls through while the next page is loading.
+ * Scroll velocity is measured in items per millisecond from the last visible position,
+ * page latency is measured from the start of load more to loaded().
+ * Both values are smoothed with exponential moving average.
+ */
+
+class LoadMorePrefetch {
+
+    /**
+     * Weight of the new sample in the moving averages.
+     */
+    private static final float SMOOTHING = 0.3f;
+
+    /**
+     * Scroll pauses longer than this are not counted as velocity samples.
+     */
+    private static final long MAX_SAMPLE_INTERVAL = 500;
+
+    private float velocity;
+    private float latency;
+
+    private int lastPosition = TrueRecyclerAdapter.POSITION_NONE;
+    private long lastPositionTime;
+    private long loadStartTime = -1;
+
+    void onScrolled(int lastVisiblePosition, long time) {
+        long interval = time - lastPositionTime;
+        if (lastPosition != TrueRecyclerAdapter.POSITION_NONE && interval > 0 && interval < MAX_SAMPLE_INTERVAL) {
+            // Only forward scroll brings the end of the list closer
+            float sample = Math.max(0, lastVisiblePosition - lastPosition) / (float) interval;
+            velocity += (sample - velocity) * SMOOTHING;
+        } else if (interval >= MAX_SAMPLE_INTERVAL) {
+            velocity = 0;
+        }
+        lastPosition = lastVisiblePosition;
+        lastPositionTime = time;
+    }
+
+    void onLoadStarted(long time) {
+        loadStartTime = time;
+    }
+
+    void onLoaded(long time) {
+        if (loadStartTime < 0)
+            return;
+        long sample = time - loadStartTime;
+        latency = latency == 0 ? sample : latency + (sample - latency) * SMOOTHING;
+        loadStartTime = -1;
+    }
+
+    /**
+     * @param threshold    minimal number of items before the end.
+     * @param maxThreshold upper limit of the result.
+     * @return number of items before the end to start load more at.
+     */
+    int threshold(int threshold, int maxThreshold) {
+        int prefetch = threshold + (int) Math.ceil(velocity * latency);
+        return Math.max(threshold, Math.min(prefetch, maxThreshold));
+    }
+
+    void reset() {
+        velocity = 0;
+        lastPosition = TrueRecyclerAdapter.POSITION_NONE;
+        loadStartTime = -1;
+    }
+}
@@ -0,0 +1,128 @@
+package pro.oncreate.truerecycler;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Mutations posted from any thread and applied on the main thread on the next frame,
+ * and immutable snapshots of items published on frames with changes.
+ * At most one frame callback is scheduled at a time.
+ */
+
+class MutationQueue<T> {
+
+    /**
+     * Receiver of frames, always called on the main thread.
+     */
+    interface Receiver<T> {
+
+        /**
+         * Apply mutations taken by poll() in one batch.
+         */
+        void onMutations(MutationQueue<T> queue);
+
+        /**
+         * @return current items, copied to the snapshot.
+         */
+        List<T> getSnapshotItems();
+    }
+
+    private final Receiver<T> receiver;
+
+    private final ConcurrentLinkedQueue<TrueRecyclerAdapter.Mutation<T>> mutations = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Immutable copy of items, null if snapshots are disabled.
+     */
+    private volatile List<T> snapshot;
+
+    private boolean snapshotDirty;
+
+    MutationQueue(Receiver<T> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Can be called from any thread, mutations are applied in order of posting.
+     */
+    void post(TrueRecyclerAdapter.Mutation<T> mutation) {
+        mutations.offer(mutation);
+        scheduleFrame();
+    }
+
+    /**
+     * @return next mutation of the frame, null if there are no more.
+     */
+    TrueRecyclerAdapter.Mutation<T> poll() {
+        return mutations.poll();
+    }
+
+    /**
+     * Call only from the main thread.
+     *
+     * @param items current items, null - disable snapshots.
+     */
+    void setSnapshotItems(List<T> items) {
+        snapshot = items != null ? Collections.unmodifiableList(new ArrayList<>(items)) : null;
+        snapshotDirty = false;
+    }
+
+    /**
+     * Can be called from any thread.
+     *
+     * @return the last published snapshot, null if snapshots are disabled.
+     */
+    List<T> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Items were changed, the snapshot is copied on the next frame.
+     */
+    void markSnapshotDirty() {
+        if (snapshot != null && !snapshotDirty) {
+            snapshotDirty = true;
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled.compareAndSet(false, true))
+            return;
+        if (Looper.myLooper() == Looper.getMainLooper())
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        else
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Choreographer.getInstance().postFrameCallback(frameCallback);
+                }
+            });
+    }
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameScheduled.set(false);
+            if (!mutations.isEmpty())
+                receiver.onMutations(MutationQueue.this);
+            if (snapshotDirty && snapshot != null)
+                snapshot = Collections.unmodifiableList(new ArrayList<>(receiver.getSnapshotItems()));
+            snapshotDirty = false;
+        }
+    };
+}
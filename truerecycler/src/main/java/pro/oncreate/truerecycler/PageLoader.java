@@ -0,0 +1,38 @@
+package pro.oncreate.truerecycler;
+
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ */
+
+public interface PageLoader<T> {
+
+    /**
+     * Start loading of the page. Can be asynchronous, the callback can be called from any thread.
+     *
+     * @param page     page number, the first page is 0.
+     * @param callback receiver of the result, call exactly one of its methods.
+     */
+    void load(int page, Callback<T> callback);
+
+    interface Callback<T> {
+
+        /**
+         * @param items    page items.
+         * @param lastPage true if there are no more pages.
+         */
+        void onLoaded(List<T> items, boolean lastPage);
+
+        /**
+         * Loading failed, the page will be requested again after a pause.
+         */
+        void onError(Throwable error);
+
+        /**
+         * @return true if the result is not needed anymore, for example adapter was cleared.
+         */
+        boolean isCancelled();
+    }
+}
@@ -0,0 +1,196 @@
+package pro.oncreate.truerecycler;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Requests pages from the page loader and tracks the number of the next page.
+ * Requests of the same page are merged, failed requests are retried with doubled pause,
+ * results of cancelled requests are dropped.
+ */
+
+class PageRequester<T> {
+
+    /**
+     * Receiver of results, always called on the main thread.
+     */
+    interface Receiver<T> {
+
+        /**
+         * The next page is loaded, the next page number is already incremented.
+         */
+        void onNextPageLoaded(List<T> items, boolean lastPage);
+
+        /**
+         * Page before the next page is loaded again, for example after eviction by the page window.
+         */
+        void onPageReloaded(int page, List<T> items);
+
+        /**
+         * Page failed to load after all retries.
+         *
+         * @param next the page is the next page.
+         */
+        void onPageFailed(int page, boolean next, Throwable error);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Receiver<T> receiver;
+
+    private PageLoader<T> loader;
+
+    /**
+     * Requests waiting for result, by page number.
+     */
+    private final SparseArray<Request> requests = new SparseArray<>();
+
+    private int nextPage = 0;
+
+    private int maxRetries = 3;
+
+    private long retryDelay = 1000;
+
+    PageRequester(Receiver<T> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * @param loader null - pages are not requested.
+     */
+    void setLoader(PageLoader<T> loader) {
+        this.loader = loader;
+    }
+
+    boolean hasLoader() {
+        return loader != null;
+    }
+
+    void setRetryPolicy(int maxRetries, long delay) {
+        this.maxRetries = maxRetries;
+        this.retryDelay = delay;
+    }
+
+    int getNextPage() {
+        return nextPage;
+    }
+
+    /**
+     * For example the page after the restored ones.
+     */
+    void setNextPage(int nextPage) {
+        this.nextPage = nextPage;
+    }
+
+    void requestNext() {
+        request(nextPage);
+    }
+
+    /**
+     * Request the page if it is not requested yet.
+     */
+    void request(int page) {
+        if (requests.get(page) != null)
+            return;
+        Request request = new Request(page);
+        requests.put(page, request);
+        request.load();
+    }
+
+    boolean isRequested(int page) {
+        return requests.get(page) != null;
+    }
+
+    /**
+     * Cancel all requests and start from the first page.
+     */
+    void cancel() {
+        for (int i = 0; i < requests.size(); i++)
+            requests.valueAt(i).cancel();
+        requests.clear();
+        nextPage = 0;
+    }
+
+    private void onLoaded(int page, List<T> items, boolean lastPage) {
+        requests.remove(page);
+        if (page == nextPage) {
+            nextPage++;
+            receiver.onNextPageLoaded(items, lastPage);
+        } else if (page < nextPage) {
+            receiver.onPageReloaded(page, items);
+        }
+    }
+
+    private void onFailed(int page, Throwable error) {
+        requests.remove(page);
+        receiver.onPageFailed(page, page == nextPage, error);
+    }
+
+    /**
+     * Request of one page, results are delivered on the main thread.
+     */
+    private class Request implements PageLoader.Callback<T>, Runnable {
+        final int page;
+        int attempt;
+        volatile boolean cancelled;
+
+        Request(int page) {
+            this.page = page;
+        }
+
+        void load() {
+            loader.load(page, this);
+        }
+
+        void cancel() {
+            cancelled = true;
+            mainHandler.removeCallbacks(this);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void onLoaded(final List<T> items, final boolean lastPage) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled && requests.get(page) == Request.this)
+                        PageRequester.this.onLoaded(page, items, lastPage);
+                }
+            });
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled || requests.get(page) != Request.this)
+                        return;
+                    if (attempt < maxRetries)
+                        mainHandler.postDelayed(Request.this, retryDelay << attempt++);
+                    else
+                        onFailed(page, error);
+                }
+            });
+        }
+
+        /**
+         * Retry.
+         */
+        @Override
+        public void run() {
+            if (!cancelled)
+                load();
+        }
+    }
+}
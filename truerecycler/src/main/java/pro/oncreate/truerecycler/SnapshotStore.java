@@ -0,0 +1,215 @@
+package pro.oncreate.truerecycler;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.util.Log;
+import android.view.View;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Saves items to TrueSnapshot and restores them. Writing and decoding run on the background
+ * executor of TrueDiffer. The chunk at the saved scroll position is decoded on the calling thread,
+ * other chunks are delivered one by one on the main thread: below the visible ones first, then above them.
+ * Chunks of a cancelled or superseded restore are dropped.
+ */
+
+class SnapshotStore<T> {
+
+    /**
+     * Receiver of restored items, always called on the main thread.
+     */
+    interface Receiver<T> {
+
+        /**
+         * Replace items with the chunk at the saved scroll position and apply the paging state.
+         *
+         * @param from position of the first item of the chunk in the saved items.
+         */
+        void onRestoreStarted(TrueSnapshot.State state, List<T> chunk, int from);
+
+        /**
+         * Add the chunk before or after the restored items. Items of evicted pages are null.
+         */
+        void onChunkRestored(List<T> chunk, int from, boolean before);
+
+        /**
+         * @param complete all chunks are restored, else restore stopped on error.
+         */
+        void onRestoreFinished(TrueSnapshot.State state, boolean complete);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Receiver<T> receiver;
+
+    /**
+     * Incremented on every restore and its cancel, used to drop chunks of the previous restore.
+     */
+    private volatile int generation;
+
+    private boolean restoring;
+
+    SnapshotStore(Receiver<T> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Items are copied on the calling thread, the file is written in background.
+     *
+     * @param recyclerView source of the scroll position saved to the state, can be null.
+     */
+    void save(final File file, List<T> items, final TrueSnapshot.State state, final ItemSerializer<T> serializer,
+              RecyclerView recyclerView, int headerCount) {
+        RecyclerView.LayoutManager layoutManager = recyclerView != null ? recyclerView.getLayoutManager() : null;
+        int anchor = RecyclerView.NO_POSITION;
+        if (layoutManager instanceof LinearLayoutManager)
+            anchor = ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+        else if (layoutManager instanceof StaggeredGridLayoutManager)
+            anchor = TrueUtils.min(((StaggeredGridLayoutManager) layoutManager).findFirstVisibleItemPositions(null));
+        if (anchor >= headerCount) {
+            View anchorView = layoutManager.findViewByPosition(anchor);
+            state.anchorPosition = Math.min(anchor - headerCount, Math.max(0, items.size() - 1));
+            state.anchorOffset = anchorView != null ? anchorView.getTop() - layoutManager.getPaddingTop() : 0;
+        }
+        final List<T> copy = new ArrayList<>(items);
+        TrueDiffer.getDefaultExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    TrueSnapshot.write(file, copy, TrueSnapshot.DEFAULT_CHUNK_SIZE, state, serializer);
+                } catch (IOException e) {
+                    Log.w("TrueRecyclerView", "Failed to save snapshot " + file, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Call only from the main thread. Receiver gets the anchor chunk before return,
+     * then RecyclerView is scrolled to the saved position.
+     *
+     * @param placeholders evicted pages can be restored as placeholders.
+     * @param recyclerView to restore scroll position, can be null.
+     * @param headerCount  number of rows before items after onRestoreStarted.
+     * @return false if there is no valid snapshot in the file, receiver is not called.
+     */
+    boolean restore(File file, ItemSerializer<T> serializer, boolean placeholders,
+                    RecyclerView recyclerView, int headerCount) {
+        final TrueSnapshot.Reader<T> reader;
+        final int anchorChunk;
+        List<T> anchorItems;
+        try {
+            reader = new TrueSnapshot.Reader<>(file, serializer);
+        } catch (IOException e) {
+            return false;
+        }
+        if (!reader.state.evictedPages.isEmpty() && !placeholders) {
+            Log.w("TrueRecyclerView", "Set page window to restore snapshot with evicted pages " + file);
+            closeQuietly(reader);
+            return false;
+        }
+        try {
+            anchorChunk = reader.getChunkOf(reader.state.anchorPosition);
+            anchorItems = reader.getChunkCount() > 0 ? reader.readChunk(anchorChunk) : new ArrayList<T>();
+        } catch (IOException | RuntimeException e) {
+            Log.w("TrueRecyclerView", "Failed to restore snapshot " + file, e);
+            closeQuietly(reader);
+            return false;
+        }
+
+        cancel();
+        receiver.onRestoreStarted(reader.state, anchorItems, anchorChunk * reader.chunkSize);
+        if (recyclerView != null) {
+            int position = headerCount + Math.max(0, reader.state.anchorPosition - anchorChunk * reader.chunkSize);
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager instanceof LinearLayoutManager)
+                ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, reader.state.anchorOffset);
+            else if (layoutManager instanceof StaggeredGridLayoutManager)
+                ((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, reader.state.anchorOffset);
+        }
+
+        final int runGeneration = ++generation;
+        restoring = true;
+        TrueDiffer.getDefaultExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean complete = false;
+                try {
+                    // Items below the visible ones first, then above them
+                    for (int chunk = anchorChunk + 1; chunk < reader.getChunkCount(); chunk++) {
+                        if (!postChunk(runGeneration, reader.readChunk(chunk), chunk * reader.chunkSize, false))
+                            return;
+                    }
+                    for (int chunk = anchorChunk - 1; chunk >= 0; chunk--) {
+                        if (!postChunk(runGeneration, reader.readChunk(chunk), chunk * reader.chunkSize, true))
+                            return;
+                    }
+                    complete = true;
+                } catch (IOException | RuntimeException e) {
+                    Log.w("TrueRecyclerView", "Failed to restore snapshot chunk", e);
+                } finally {
+                    closeQuietly(reader);
+                    final boolean restored = complete;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (runGeneration != generation)
+                                return;
+                            restoring = false;
+                            receiver.onRestoreFinished(reader.state, restored);
+                        }
+                    });
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return true while chunks of the restore are being decoded.
+     */
+    boolean isRestoring() {
+        return restoring;
+    }
+
+    /**
+     * Drop chunks of the running restore.
+     */
+    void cancel() {
+        generation++;
+        restoring = false;
+    }
+
+    /**
+     * @return true if restore is not cancelled yet.
+     */
+    private boolean postChunk(final int runGeneration, final List<T> chunk, final int from, final boolean before) {
+        if (runGeneration != generation)
+            return false;
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (runGeneration == generation)
+                    receiver.onChunkRestored(chunk, from, before);
+            }
+        });
+        return true;
+    }
+
+    private static void closeQuietly(TrueSnapshot.Reader<?> reader) {
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package pro.oncreate.truerecycler;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ */
+
+public interface StateRenderer {
+
+    /**
+     * State of the adapter data.
+     */
+    enum State {
+        /**
+         * No items, loading is in progress.
+         */
+        LOADING,
+        /**
+         * No items, all pages are loaded.
+         */
+        EMPTY,
+        /**
+         * No items, loading failed.
+         */
+        ERROR,
+        /**
+         * Items are shown or nothing is requested yet.
+         */
+        CONTENT
+    }
+
+    /**
+     * Called on the main thread only when the state differs from the previous one.
+     */
+    void render(State state);
+}
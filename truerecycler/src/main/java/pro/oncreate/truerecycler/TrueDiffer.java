@@ -0,0 +1,124 @@
+package pro.oncreate.truerecycler;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Calculates the difference between two lists on a background executor
+ * and delivers the result on the main thread. Only the result of the latest
+ * submission is delivered, older results are dropped.
+ */
+
+class TrueDiffer<T> {
+
+    /**
+     * Receiver of the calculated difference, always called on the main thread.
+     */
+    interface Receiver<T> {
+        void onDiffCalculated(List<T> oldItems, List<T> newItems, DiffUtil.DiffResult result);
+    }
+
+    private static ExecutorService defaultExecutor;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Executor executor;
+
+    /**
+     * Incremented on every submission and cancel, used to detect stale results.
+     * Accessed only from the main thread.
+     */
+    private int generation;
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Start calculating difference. Call only from the main thread.
+     *
+     * @param oldItems snapshot of the current items, must not be modified after call.
+     * @param newItems new items, must not be modified after call.
+     */
+    void submit(final List<T> oldItems, final List<T> newItems,
+                final DiffUtil.ItemCallback<T> itemCallback, final Receiver<T> receiver) {
+        final int runGeneration = ++generation;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                    @Override
+                    public int getOldListSize() {
+                        return oldItems.size();
+                    }
+
+                    @Override
+                    public int getNewListSize() {
+                        return newItems.size();
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                        return itemCallback.areItemsTheSame(oldItems.get(oldPosition), newItems.get(newPosition));
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                        return itemCallback.areContentsTheSame(oldItems.get(oldPosition), newItems.get(newPosition));
+                    }
+
+                    @Override
+                    public Object getChangePayload(int oldPosition, int newPosition) {
+                        return itemCallback.getChangePayload(oldItems.get(oldPosition), newItems.get(newPosition));
+                    }
+                });
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (runGeneration == generation)
+                            receiver.onDiffCalculated(oldItems, newItems, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drop the result of the running calculation, if any.
+     */
+    void cancel() {
+        generation++;
+    }
+
+    private Executor getExecutor() {
+        return executor != null ? executor : getDefaultExecutor();
+    }
+
+    /**
+     * @return background thread shared by all adapters.
+     */
+    static Executor getDefaultExecutor() {
+        synchronized (TrueDiffer.class) {
+            if (defaultExecutor == null)
+                defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "TrueRecyclerDiff");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            return defaultExecutor;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package pro.oncreate.truerecycler;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Filters items on a background executor and records the changes of the shown list.
+ * Result is a mask of matching positions in the unfiltered items. If the shown list is the previous
+ * result, the changes are found by one pass over both masks, else by DiffUtil.
+ * Only the result of the latest submission is delivered.
+ */
+
+class TrueFilter<T> {
+
+    /**
+     * Receiver of the result, always called on the main thread.
+     */
+    interface Receiver<T> {
+        /**
+         * @param query   filtered query, null if filter is cleared.
+         * @param oldMask mask of the submission, null if oldShown was diffed.
+         * @param updates changes from the old shown list to newItems.
+         */
+        void onFiltered(CharSequence query, BitSet oldMask, List<T> oldShown,
+                        BitSet newMask, List<T> newItems, UpdateBatch updates);
+    }
+
+    /**
+     * Cancellation is checked every time this number of items is filtered.
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Executor executor;
+
+    /**
+     * Incremented on every submission and cancel. Written on the main thread,
+     * read in background to stop superseded filtering.
+     */
+    private volatile int generation;
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Start filtering. Call only from the main thread.
+     *
+     * @param items     unfiltered items, must not be modified after call.
+     * @param query     null to show all items.
+     * @param narrowing filter only items of oldMask.
+     * @param oldMask   positions of the shown items in unfiltered items, null if unknown.
+     * @param oldShown  snapshot of the shown items, used if oldMask is null.
+     */
+    void submit(final List<T> items, final CharSequence query, final ItemFilter<T> filter, final boolean narrowing,
+                final BitSet oldMask, final List<T> oldShown, final DiffUtil.ItemCallback<T> itemCallback,
+                final Receiver<T> receiver) {
+        final int runGeneration = ++generation;
+        (executor != null ? executor : TrueDiffer.getDefaultExecutor()).execute(new Runnable() {
+            @Override
+            public void run() {
+                final BitSet newMask = new BitSet(items.size());
+                if (query == null) {
+                    newMask.set(0, items.size());
+                } else {
+                    int checked = 0;
+                    int i = narrowing ? oldMask.nextSetBit(0) : 0;
+                    while (i >= 0 && i < items.size()) {
+                        if (++checked % CANCEL_CHECK_INTERVAL == 0 && runGeneration != generation)
+                            return;
+                        if (filter.matches(items.get(i), query))
+                            newMask.set(i);
+                        i = narrowing ? oldMask.nextSetBit(i + 1) : i + 1;
+                    }
+                }
+                final List<T> newItems = new ArrayList<>(newMask.cardinality());
+                for (int i = newMask.nextSetBit(0); i >= 0; i = newMask.nextSetBit(i + 1))
+                    newItems.add(items.get(i));
+                if (runGeneration != generation)
+                    return;
+                final UpdateBatch updates = new UpdateBatch();
+                if (oldMask != null)
+                    diffMasks(oldMask, newMask, updates);
+                else
+                    diffLists(oldShown, newItems, itemCallback).dispatchUpdatesTo(updates);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (runGeneration == generation)
+                            receiver.onFiltered(query, oldMask, oldShown, newMask, newItems, updates);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drop the result of the running filtering, if any.
+     */
+    void cancel() {
+        generation++;
+    }
+
+    /**
+     * Both lists are subsequences of the same list, so one pass in order gives the minimal changes.
+     */
+    static void diffMasks(BitSet oldMask, BitSet newMask, UpdateBatch updates) {
+        BitSet union = (BitSet) oldMask.clone();
+        union.or(newMask);
+        int position = 0;
+        for (int i = union.nextSetBit(0); i >= 0; i = union.nextSetBit(i + 1)) {
+            boolean shown = oldMask.get(i);
+            boolean matches = newMask.get(i);
+            if (shown && !matches) {
+                updates.onRemoved(position, 1);
+            } else {
+                if (!shown)
+                    updates.onInserted(position, 1);
+                position++;
+            }
+        }
+    }
+
+    private static <T> DiffUtil.DiffResult diffLists(final List<T> oldItems, final List<T> newItems,
+                                                     final DiffUtil.ItemCallback<T> itemCallback) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                T oldItem = oldItems.get(oldPosition);
+                T newItem = newItems.get(newPosition);
+                return itemCallback != null ? itemCallback.areItemsTheSame(oldItem, newItem) : oldItem == newItem;
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return itemCallback == null
+                        || itemCallback.areContentsTheSame(oldItems.get(oldPosition), newItems.get(newPosition));
+            }
+        }, false);
+    }
+}
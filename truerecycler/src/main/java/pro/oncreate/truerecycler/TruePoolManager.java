@@ -0,0 +1,191 @@
+package pro.oncreate.truerecycler;
+
+import android.arch.lifecycle.Lifecycle;
+import android.arch.lifecycle.LifecycleObserver;
+import android.arch.lifecycle.LifecycleOwner;
+import android.arch.lifecycle.OnLifecycleEvent;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+import java.util.HashMap;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Shares view holders of the same row types between adapters of different screens.
+ * Every row type is registered by a string key and gets a view type that is the same in all adapters,
+ * adapters return it from getNormalType(int) or register delegates with it.
+ * Only holders of registered types are kept in the shared pool. Holders of other types
+ * (headers, footers, adapter-local types) are kept in the own pool of every RecyclerView,
+ * because equal numbers of such types mean different rows in different adapters.
+ * <p>
+ * Pooled holders keep views inflated with the context of the screen, so the manager is scoped
+ * to a lifecycle owner, normally the Activity that hosts the RecyclerViews.
+ * The shared pool is cleared when the owner is destroyed and is not used after that.
+ */
+
+public class TruePoolManager {
+
+    /**
+     * View types of registered keys start from this value.
+     */
+    public static final int SHARED_VIEW_TYPE_FIRST = 1 << 30;
+
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private final HashMap<String, Integer> viewTypes = new HashMap<>();
+
+    private final SparseIntArray maxRecycledViews = new SparseIntArray();
+
+    private final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+
+    private boolean destroyed;
+
+    /**
+     * @param owner Activity or other owner of the RecyclerViews sharing the pool.
+     */
+    public TruePoolManager(LifecycleOwner owner) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED)
+            destroyed = true;
+        else
+            owner.getLifecycle().addObserver(new DestroyObserver(owner));
+    }
+
+    /**
+     * @param key name of the row type, for example layout name.
+     * @return view type of the key, the same for all adapters.
+     */
+    public int getViewType(String key) {
+        Integer type = viewTypes.get(key);
+        if (type == null) {
+            type = SHARED_VIEW_TYPE_FIRST + viewTypes.size();
+            viewTypes.put(key, type);
+        }
+        return type;
+    }
+
+    /**
+     * Set the number of holders of the type kept in the pool. Default value 5.
+     */
+    public void setMaxRecycledViews(String key, int max) {
+        int type = getViewType(key);
+        maxRecycledViews.put(type, max);
+        pool.setMaxRecycledViews(type, max);
+    }
+
+    /**
+     * Use shared pool in the RecyclerView. RecyclerView gets its own pool
+     * which keeps holders of not registered types and passes the others to the shared pool.
+     */
+    public void attach(RecyclerView recyclerView) {
+        if (!isAttached(recyclerView))
+            recyclerView.setRecycledViewPool(new LocalPool());
+    }
+
+    /**
+     * Create holders of the type before the first layout, so the screen is shown without inflating them.
+     * RecyclerView must be attached and have an adapter that creates holders of the type.
+     *
+     * @param count number of holders, limited by max recycled views of the type.
+     */
+    public void warmUp(RecyclerView recyclerView, String key, int count) {
+        RecyclerView.Adapter adapter = recyclerView.getAdapter();
+        if (adapter == null)
+            throw new IllegalStateException("Set adapter to RecyclerView before warm up");
+        if (!isAttached(recyclerView))
+            throw new IllegalStateException("Attach RecyclerView before warm up");
+        if (destroyed)
+            return;
+        int type = getViewType(key);
+        int missing = Math.min(count, maxRecycledViews.get(type, DEFAULT_MAX_RECYCLED_VIEWS))
+                - pool.getRecycledViewCount(type);
+        for (int i = 0; i < missing; i++) {
+            RecyclerView.ViewHolder holder = adapter.createViewHolder(recyclerView, type);
+            TrueUtils.markPooled(holder);
+            pool.putRecycledView(holder);
+        }
+    }
+
+    /**
+     * @return pool of holders of registered types, shared by attached RecyclerViews.
+     */
+    public RecyclerView.RecycledViewPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Drop all holders of the shared pool, for example on low memory.
+     */
+    public void clear() {
+        pool.clear();
+    }
+
+    /**
+     * @return true if the manager's lifecycle owner is destroyed.
+     */
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    private boolean isShared(int viewType) {
+        // Holders recycled after the owner is destroyed stay in their RecyclerView and go away with it
+        return !destroyed && viewType >= SHARED_VIEW_TYPE_FIRST && viewType < SHARED_VIEW_TYPE_FIRST + viewTypes.size();
+    }
+
+    private boolean isAttached(RecyclerView recyclerView) {
+        RecyclerView.RecycledViewPool recycledViewPool = recyclerView.getRecycledViewPool();
+        return recycledViewPool instanceof LocalPool && ((LocalPool) recycledViewPool).getManager() == this;
+    }
+
+    private class DestroyObserver implements LifecycleObserver {
+        final LifecycleOwner owner;
+
+        DestroyObserver(LifecycleOwner owner) {
+            this.owner = owner;
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        public void onDestroy() {
+            destroyed = true;
+            pool.clear();
+            owner.getLifecycle().removeObserver(this);
+        }
+    }
+
+    /**
+     * Pool of one RecyclerView, holders of registered types are kept in the shared pool.
+     */
+    private class LocalPool extends RecyclerView.RecycledViewPool {
+
+        TruePoolManager getManager() {
+            return TruePoolManager.this;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder getRecycledView(int viewType) {
+            return isShared(viewType) ? pool.getRecycledView(viewType) : super.getRecycledView(viewType);
+        }
+
+        @Override
+        public void putRecycledView(RecyclerView.ViewHolder scrap) {
+            if (isShared(scrap.getItemViewType()))
+                pool.putRecycledView(scrap);
+            else
+                super.putRecycledView(scrap);
+        }
+
+        @Override
+        public int getRecycledViewCount(int viewType) {
+            return isShared(viewType) ? pool.getRecycledViewCount(viewType) : super.getRecycledViewCount(viewType);
+        }
+
+        @Override
+        public void setMaxRecycledViews(int viewType, int max) {
+            if (isShared(viewType))
+                pool.setMaxRecycledViews(viewType, max);
+            else
+                super.setMaxRecycledViews(viewType, max);
+        }
+    }
+}
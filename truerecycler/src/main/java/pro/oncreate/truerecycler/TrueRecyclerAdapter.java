@@ -1,14 +1,26 @@
 package pro.oncreate.truerecycler;
 
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import android.os.SystemClock;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Created by Andrii Konovalenko, 2014-2017 years.
@@ -25,20 +37,25 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
     //
 
 
+    /**
+     * Items, headers, footers and position math, shared with the pure-Java core.
+     */
+    private final ItemStore<T> store = new ItemStore<>();
+
     /**
      * The collection of the any elements that will be presented in the form of a data model representation.
      */
-    protected List<T> items = new ArrayList<>();
+    protected List<T> items = store.getItems();
 
     /**
      * The collection of headers views.
      */
-    protected List<Object> headers = new ArrayList<>();
+    protected List<Object> headers = store.getHeaders();
 
     /**
      * The collection of footers views.
      */
-    protected List<Object> footers = new ArrayList<>();
+    protected List<Object> footers = store.getFooters();
 
     /**
      * Load more state. Is load more now.
@@ -52,6 +69,11 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     private boolean allLoaded = false;
 
+    /**
+     * Load more state. The first footer is the progress footer added by the adapter.
+     */
+    private boolean progressFooterShown = false;
+
     /**
      * Load more listener.
      */
@@ -68,15 +90,247 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     private int visibleThreshold = 3;
 
+    /**
+     * Velocity-aware threshold, null if disabled.
+     */
+    private LoadMorePrefetch prefetch;
+
+    /**
+     * Load more scroll listener, null if not attached to RecyclerView.
+     */
+    private LoadMoreScrollListener scrollListener;
+
+    /**
+     * Load more is enabled, scroll listener follows adapter to RecyclerView.
+     */
+    private boolean loadMoreEnabled;
+
+    /**
+     * Load previous state. Is load previous now.
+     * Default value false.
+     */
+    private boolean isLoadingPrevious = false;
+
+    /**
+     * Load previous state. Is first page loaded.
+     * Default value false.
+     */
+    private boolean allPreviousLoaded = false;
+
+    /**
+     * Load previous state. The first header is the progress header added by the adapter.
+     */
+    private boolean progressHeaderShown = false;
+
+    /**
+     * Load previous is enabled, scroll listener follows adapter to RecyclerView.
+     */
+    private boolean loadPreviousEnabled;
+
+    /**
+     * RecyclerView the adapter is set to, null if detached.
+     */
+    private RecyclerView attachedRecyclerView;
+
+    /**
+     * First visible item remembered before inserting rows above it, see captureScrollAnchor(int).
+     */
+    private RecyclerView scrollAnchorRecyclerView;
+    private View scrollAnchorView;
+    private int scrollAnchorPosition, scrollAnchorOffset;
+
+    /**
+     * Rows were inserted inside the batch, the first visible item is anchored on commit.
+     */
+    private boolean scrollAnchorRequested;
+
+    /**
+     * Load previous listener.
+     */
+    private LoadPreviousListener loadPreviousListener;
+
+    /**
+     * The number of items before calling load previous.
+     */
+    private int previousThreshold = 3;
+
+    /**
+     * Background inflation of registered layouts.
+     */
+    private final ViewPreInflater preInflater = new ViewPreInflater();
+
+    /**
+     * Collected metrics, null if metrics are disabled.
+     */
+    private AdapterMetrics metrics;
+
+    private AdapterMetrics.Listener metricsListener;
+
     /**
      * The number of items before calling load more.
      */
-    public static final int POSITION_NONE = -1;
+    public static final int POSITION_NONE = ItemStore.POSITION_NONE;
+
+    /**
+     * View types not greater than this value are reserved for headers, footers and delegates.
+     */
+    public static final int RESERVED_VIEW_TYPE_MAX = Integer.MIN_VALUE + 3 * (1 << 28) - 1;
+
+    /**
+     * Ids less than this value are reserved for headers and footers.
+     *
+     * @see KeyExtractor
+     */
+    public static final long RESERVED_ID_MAX = Long.MIN_VALUE + (2L << 32);
+
+    private static final long HEADER_ID_BASE = Long.MIN_VALUE;
+
+    private static final long FOOTER_ID_BASE = Long.MIN_VALUE + (1L << 32);
+
+    /**
+     * Keys of progress header and footer in reservedIds, their models may be the same object or null.
+     */
+    private static final Object PROGRESS_HEADER_KEY = new Object();
+
+    private static final Object PROGRESS_FOOTER_KEY = new Object();
+
+    /**
+     * Renderer of data state, null if not set.
+     */
+    private StateRenderer stateRenderer;
+
+    /**
+     * Last state passed to the renderer.
+     */
+    private StateRenderer.State renderedState;
+
+    /**
+     * Loading failed, reset by the next loading.
+     */
+    private boolean error = false;
+
+    /**
+     * Page window listener, null if page window is disabled.
+     */
+    private PageWindowListener<T> pageWindowListener;
+
+    /**
+     * Number of pages kept before and after the visible pages.
+     */
+    private int pagesAround;
+
+    /**
+     * Pages replaced with placeholders and pages requested from the page window listener.
+     */
+    private final BitSet evictedPages = new BitSet(), requestedPages = new BitSet();
+
+    private int keptFirstPage = POSITION_NONE, keptLastPage = POSITION_NONE;
+
+    /**
+     * Items comparison callback. If not null, set() calculates difference in background.
+     */
+    private DiffUtil.ItemCallback<T> diffCallback;
+
+    /**
+     * Background difference calculator, created with the diff callback.
+     */
+    private TrueDiffer<T> differ;
+
+    /**
+     * Predicate of filter(CharSequence), null if not set.
+     */
+    private ItemFilter<T> itemFilter;
+
+    /**
+     * Background filtering, created with the filter.
+     */
+    private TrueFilter<T> filterRunner;
+
+    /**
+     * All items while filter is applied, null if items are not filtered.
+     */
+    private List<T> unfilteredItems;
+
+    /**
+     * Query of the shown result.
+     */
+    private CharSequence filterQuery;
+
+    /**
+     * Query of the running filtering, valid while filterPending is true.
+     */
+    private CharSequence pendingFilterQuery;
+
+    private boolean filterPending;
+
+    /**
+     * Unfiltered items were changed after the running filtering started, its result is outdated.
+     */
+    private boolean filterStale;
+
+    /**
+     * Positions of the shown items in unfiltered items, null if the shown list was changed after filtering.
+     */
+    private BitSet filterMask;
+
+    /**
+     * Payloads of replaced items, null - items are rebound fully.
+     */
+    private ChangeDetector<T> changeDetector;
+
+    /**
+     * Order of items in sorted mode, null if items are kept in order of adding.
+     */
+    private Comparator<? super T> comparator;
+
+    /**
+     * Stable ids of headers and footers objects.
+     */
+    private final IdentityHashMap<Object, Long> reservedIds = new IdentityHashMap<>();
+
+    private int nextHeaderId, nextFooterId;
+
+    /**
+     * View types of headers and footers are defined by content.
+     */
+    private boolean typesByContent;
+
+    /**
+     * Content type of header and footer by key and key by content type.
+     * Keys are released with the last header or footer that uses them.
+     */
+    private final HashMap<Object, Integer> contentTypes = new HashMap<>();
+    private final SparseArray<Object> contentTypeKeys = new SparseArray<>();
+
+    private int nextContentType;
+
+    /**
+     * Item delegates, index in the list is offset of view type in delegates range.
+     */
+    private final List<ItemDelegate<? extends T, ?>> delegates = new ArrayList<>();
+
+    /**
+     * View types of delegates added with model class.
+     */
+    private final HashMap<Class<?>, Integer> delegateTypes = new HashMap<>();
+
+    /**
+     * Delegates added without model class and their view types.
+     */
+    private final List<ItemDelegate<? extends T, ?>> predicateDelegates = new ArrayList<>();
+    private final List<Integer> predicateDelegateTypes = new ArrayList<>();
+
+    /**
+     * Delegates with view types given by user, for example shared by TruePoolManager.
+     */
+    private final SparseArray<ItemDelegate<? extends T, ?>> typedDelegates = new SparseArray<>();
 
     /**
-     * Empty view instance.
+     * Recorded notifications of the current batch, null if batch is not started.
      */
-    private Object emptyView;
+    private UpdateBatch pendingBatch;
+
+    private int batchDepth;
 
 
     //
@@ -89,7 +343,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     public void addHeader(View v) {
         this.headers.add(v);
-        notifyItemInserted(headers.size() - 1);
+        dispatchItemRangeInserted(headers.size() - 1, 1);
     }
 
     /**
@@ -97,7 +351,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     public void addFooter(View v) {
         this.footers.add(v);
-        notifyItemInserted(getItemCount() - 1);
+        dispatchItemRangeInserted(getItemCount() - 1, 1);
     }
 
     /**
@@ -105,7 +359,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     public void addHeader(Object data) {
         this.headers.add(data);
-        notifyItemInserted(headers.size() - 1);
+        dispatchItemRangeInserted(headers.size() - 1, 1);
     }
 
     /**
@@ -113,7 +367,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     public void addFooter(Object data) {
         this.footers.add(data);
-        notifyItemInserted(getItemCount() - 1);
+        dispatchItemRangeInserted(getItemCount() - 1, 1);
     }
 
 
@@ -123,33 +377,46 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @param position header position
      */
     public void removeHeader(int position) {
-        if (position >= 0 && position < this.headers.size()) {
-            this.headers.remove(position);
-            this.notifyItemRemoved(position);
+        if (position >= 0 && position < this.headers.size())
+            removeHeaderAt(position);
+    }
+
+    private void removeHeaderAt(int position) {
+        if (position == 0 && progressHeaderShown) {
+            progressHeaderShown = false;
+            reservedIds.remove(PROGRESS_HEADER_KEY);
         }
+        releaseHeaderOrFooter(headers.remove(position));
+        dispatchItemRangeRemoved(position, 1);
     }
 
 
     /**
      * Remove footer.
      *
-     * @param position header position
+     * @param position footer position in adapter
      */
     public void removeFooter(int position) {
-        if (position >= headers.size() + items.size() && position < this.getItemCount()) {
-            this.footers.remove(position);
-            this.notifyItemRemoved(position);
-        }
+        if (position >= headers.size() + items.size() && position < this.getItemCount())
+            removeFooterAt(getRelativeFooterPosition(position));
     }
 
     /**
      * Remove last footer.
      */
     public void removeFooter() {
-        if (!footers.isEmpty()) {
-            footers.remove(footers.size() - 1);
-            notifyItemRemoved(getItemCount());
+        if (!footers.isEmpty())
+            removeFooterAt(footers.size() - 1);
+    }
+
+    private void removeFooterAt(int index) {
+        if (index == 0 && progressFooterShown) {
+            progressFooterShown = false;
+            reservedIds.remove(PROGRESS_FOOTER_KEY);
         }
+        int position = headers.size() + items.size() + index;
+        releaseHeaderOrFooter(footers.remove(index));
+        dispatchItemRangeRemoved(position, 1);
     }
 
 
@@ -163,7 +430,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     @Override
     public int getItemCount() {
-        return items.size() + headers.size() + footers.size();
+        return store.getCount();
     }
 
     /**
@@ -173,6 +440,18 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
         return items;
     }
 
+    /**
+     * Replace backing list of items, current items are moved to it. No notifications are sent.
+     * Use ChunkedList for long lists with inserts at the beginning or in the middle.
+     *
+     * @param storage empty list, it's owned by the adapter after call.
+     * @see ChunkedList
+     */
+    public void setItemsStorage(List<T> storage) {
+        store.setStorage(storage);
+        this.items = store.getItems();
+    }
+
     /**
      * @return total count of items collection.
      */
@@ -206,7 +485,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @return position in items collection.
      */
     public int getRelativeItemPosition(int positionInAdapter) {
-        return positionInAdapter - headers.size();
+        return store.toItemPosition(positionInAdapter);
     }
 
     /**
@@ -214,7 +493,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @return position in headers collection.
      */
     public int getRelativeFooterPosition(int positionInAdapter) {
-        return positionInAdapter - headers.size() - items.size();
+        return store.toFooterPosition(positionInAdapter);
     }
 
     /**
@@ -236,15 +515,14 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
     }
 
     /**
+     * Works in O(log n) when position index is enabled, O(n) otherwise.
+     *
      * @param model - search item
      * @return position in items collection or -1 if item not found.
+     * @see TrueRecyclerAdapter#setPositionIndexEnabled(boolean)
      */
     public int getItemPosition(T model) {
-        for (int i = 0; i < items.size(); i++) {
-            if (items.get(i) == model)
-                return i;
-        }
-        return POSITION_NONE;
+        return store.indexOf(model);
     }
 
     /**
@@ -256,14 +534,78 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
     }
 
     /**
-     * The default implementation.
+     * The default implementation returns key of the item if key extractor is set,
+     * headers and footers get ids from reserved range. Otherwise returns position.
      *
      * @param position in adapter.
      * @return a unique id.
+     * @see TrueRecyclerAdapter#setKeyExtractor(KeyExtractor)
      */
     @Override
     public long getItemId(int position) {
-        return position;
+        KeyExtractor<T> keyExtractor = store.getKeyExtractor();
+        if (keyExtractor == null)
+            return position;
+        int type = getItemType(position);
+        if (type == VIEW_TYPES.NORMAL)
+            return keyExtractor.getKey(getItem(getRelativeItemPosition(position)));
+        else if (type == VIEW_TYPES.HEADER)
+            return reservedId(position == 0 && progressHeaderShown ? PROGRESS_HEADER_KEY : headers.get(position), true);
+        int footer = getRelativeFooterPosition(position);
+        return reservedId(footer == 0 && progressFooterShown ? PROGRESS_FOOTER_KEY : footers.get(footer), false);
+    }
+
+    /**
+     * Set keys of items used as stable ids. Call setHasStableIds(true) before set adapter to RecyclerView
+     * to let it keep view holders of items by identity.
+     *
+     * @param keyExtractor null - ids are positions.
+     */
+    public void setKeyExtractor(KeyExtractor<T> keyExtractor) {
+        store.setKeyExtractor(keyExtractor);
+    }
+
+    /**
+     * Works in O(log n) when position index is enabled, O(n) otherwise.
+     *
+     * @param key - key of search item
+     * @return position in items collection or -1 if item not found.
+     * @see TrueRecyclerAdapter#setKeyExtractor(KeyExtractor)
+     */
+    public int getItemPositionByKey(long key) {
+        return store.indexOfKey(key);
+    }
+
+    private long reservedId(Object headerOrFooter, boolean header) {
+        Long id = reservedIds.get(headerOrFooter);
+        if (id == null) {
+            id = header ? HEADER_ID_BASE + (nextHeaderId++ & 0xFFFFFFFFL)
+                    : FOOTER_ID_BASE + (nextFooterId++ & 0xFFFFFFFFL);
+            reservedIds.put(headerOrFooter, id);
+        }
+        return id;
+    }
+
+    /**
+     * Header or footer was removed, forget its id and view type.
+     */
+    private void releaseHeaderOrFooter(Object headerOrFooter) {
+        reservedIds.remove(headerOrFooter);
+        if (contentTypes.isEmpty())
+            return;
+        Object key = getContentTypeKey(headerOrFooter);
+        if (!contentTypes.containsKey(key) || usesContentTypeKey(headers, key) || usesContentTypeKey(footers, key))
+            return;
+        contentTypeKeys.remove(contentTypes.remove(key));
+    }
+
+    private boolean usesContentTypeKey(List<Object> headersOrFooters, Object key) {
+        for (int i = 0; i < headersOrFooters.size(); i++) {
+            Object other = getContentTypeKey(headersOrFooters.get(i));
+            if (key == null ? other == null : key.equals(other))
+                return true;
+        }
+        return false;
     }
 
 
@@ -278,12 +620,8 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @param items - not an empty collection.
      */
     public void addAll(List<T> items) {
-        if (items != null && items.size() > 0) {
-            this.items.addAll(items);
-            int from = headers.size() + this.items.size() - items.size();
-            int count = items.size() + footers.size();
-            this.notifyItemRangeInserted(from, count);
-        }
+        onMutated(AdapterMetrics.Mutator.ADD_ALL);
+        appendItems(items);
     }
 
     /**
@@ -292,11 +630,23 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @param collection - not an empty collection.
      */
     public void addAll(Collection<? extends T> collection) {
-        if (collection != null && collection.size() > 0) {
-            this.items.addAll(collection);
-            int from = headers.size() + this.items.size() - collection.size();
-            int count = collection.size() + footers.size();
-            this.notifyItemRangeInserted(from, count);
+        onMutated(AdapterMetrics.Mutator.ADD_ALL);
+        appendItems(collection);
+    }
+
+    private void appendItems(Collection<? extends T> collection) {
+        if (collection == null)
+            return;
+        if (unfilteredItems != null)
+            collection = addUnfiltered(POSITION_NONE, collection);
+        if (comparator != null) {
+            mergeSorted(collection);
+            return;
+        }
+        int count = collection.size();
+        if (count > 0) {
+            int from = store.addAll(collection);
+            onItemsAppended(from, count);
         }
     }
 
@@ -306,43 +656,70 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @param items - not an empty collection.
      */
     public void addAll(int position, List<T> items) {
+        onMutated(AdapterMetrics.Mutator.INSERT_ALL);
+        insertItems(position, items);
+    }
+
+    private void insertItems(int position, List<T> items) {
         if (items == null)
             return;
-        if (position >= this.items.size()) {
-            addAll(items);
+        if (position >= this.items.size() || comparator != null) {
+            appendItems(items);
             return;
         }
         if (position >= 0) {
-            this.items.addAll(position, items);
-            int from = headers.size() + position;
+            if (unfilteredItems != null)
+                items = addUnfiltered(position, items);
             int count = items.size();
-            this.notifyItemRangeInserted(from, count);
+            store.addAll(position, items);
+            onItemsInserted(position, count);
         }
     }
 
     /**
      * Set items collection, old data will be removed.
+     * If diff callback is set, the collection is applied after background calculation of changes.
      *
      * @param items - not an empty collection.
+     * @see TrueRecyclerAdapter#setDiffCallback(DiffUtil.ItemCallback)
      */
     public void set(List<T> items) {
-        if (items != null) {
-            this.items.clear();
-            this.items.addAll(items);
-            this.notifyDataSetChanged();
-        }
+        onMutated(AdapterMetrics.Mutator.SET);
+        if (items != null)
+            setItems(items);
     }
 
     /**
      * Set items collection, old data will be removed.
+     * If diff callback is set, the collection is applied after background calculation of changes.
      *
      * @param collection - not an empty collection.
+     * @see TrueRecyclerAdapter#setDiffCallback(DiffUtil.ItemCallback)
      */
     public void set(Collection<? extends T> collection) {
-        if (items != null) {
-            this.items.clear();
-            this.items.addAll(collection);
-            this.notifyDataSetChanged();
+        onMutated(AdapterMetrics.Mutator.SET);
+        if (collection != null)
+            setItems(collection);
+    }
+
+    private void setItems(Collection<? extends T> collection) {
+        snapshotStore.cancel();
+        resetPrefetch();
+        if (comparator != null) {
+            List<T> sorted = new ArrayList<T>(collection);
+            Collections.sort(sorted, comparator);
+            collection = sorted;
+        }
+        if (unfilteredItems != null) {
+            unfilteredItems = new ArrayList<T>(collection);
+            filterMask = null;
+            submitFilter(filterPending ? pendingFilterQuery : filterQuery);
+        } else if (differ != null) {
+            differ.submit(new ArrayList<>(this.items), new ArrayList<T>(collection), diffCallback, diffReceiver);
+        } else {
+            store.set(collection);
+            resetPageWindow();
+            this.dispatchDataSetChanged();
         }
     }
 
@@ -350,22 +727,45 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * Add item to the collection.
      */
     public void add(T item) {
+        onMutated(AdapterMetrics.Mutator.ADD);
+        appendItem(item);
+    }
+
+    private void appendItem(T item) {
         if (item == null)
             throw new NullPointerException("item is null");
-        ArrayList<T> items = new ArrayList<>();
-        items.add(item);
-        addAll(items);
+        if (unfilteredItems != null && !addUnfiltered(POSITION_NONE, item))
+            return;
+        if (comparator != null) {
+            int position = findSortedPosition(this.items, item, 0, this.items.size());
+            store.add(position, item);
+            if (position == this.items.size() - 1)
+                onItemsAppended(position, 1);
+            else
+                onItemsInserted(position, 1);
+            return;
+        }
+        int position = store.add(item);
+        onItemsAppended(position, 1);
     }
 
     /**
      * Add item to the collection.
      */
     public void add(int position, T item) {
+        onMutated(AdapterMetrics.Mutator.INSERT);
         if (item == null)
             throw new NullPointerException("item is null");
-        ArrayList<T> items = new ArrayList<>();
-        items.add(item);
-        addAll(position, items);
+        if (position >= this.items.size() || comparator != null) {
+            appendItem(item);
+            return;
+        }
+        if (position >= 0) {
+            if (unfilteredItems != null && !addUnfiltered(position, item))
+                return;
+            store.add(position, item);
+            onItemsInserted(position, 1);
+        }
     }
 
     /**
@@ -375,10 +775,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @see TrueRecyclerAdapter#clear(boolean)
      */
     public void clear() {
-        int oldSize = items.size();
-        this.items.clear();
-        this.notifyItemRangeRemoved(headers.size(), oldSize);
-        loadingFinish(false);
+        clear(false);
     }
 
     /**
@@ -388,10 +785,24 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @see TrueRecyclerAdapter#clear()
      */
     public void clear(boolean lastLoading) {
+        onMutated(AdapterMetrics.Mutator.CLEAR);
+        clearItems(lastLoading);
+    }
+
+    private void clearItems(boolean lastLoading) {
+        beginBatch();
+        cancelDiff();
+        cancelFilter();
+        snapshotStore.cancel();
+        cancelPageRequests();
+        resetPageWindow();
+        resetPrefetch();
         int oldSize = items.size();
-        this.items.clear();
-        this.notifyItemRangeRemoved(headers.size(), oldSize);
+        store.clear();
+        this.error = false;
+        this.dispatchItemRangeRemoved(headers.size(), oldSize);
         this.loadingFinish(lastLoading);
+        commit();
     }
 
     /**
@@ -401,9 +812,16 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @see TrueRecyclerAdapter#remove(Object)
      */
     public void remove(int position) {
+        onMutated(AdapterMetrics.Mutator.REMOVE);
+        removeItem(position);
+    }
+
+    private void removeItem(int position) {
         if (position >= 0 && position < this.items.size()) {
-            this.items.remove(position);
-            this.notifyItemRemoved(headers.size() + position);
+            if (unfilteredItems != null)
+                removeUnfiltered(items.get(position));
+            store.remove(position);
+            this.dispatchItemRangeRemoved(headers.size() + position, 1);
         }
     }
 
@@ -414,100 +832,994 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * @see TrueRecyclerAdapter#remove(int)
      */
     public void remove(T model) {
+        onMutated(AdapterMetrics.Mutator.REMOVE);
         int position = getItemPosition(model);
         if (position >= 0)
-            remove(position);
+            removeItem(position);
     }
 
+    /**
+     * Rebind view of the item with payload, onBindHolder(VH, int, Object, List) receives it.
+     *
+     * @param position in items collection
+     * @param payload  description of the change, null for full rebind
+     */
+    public void update(int position, Object payload) {
+        onMutated(AdapterMetrics.Mutator.UPDATE);
+        updateItem(position, payload);
+    }
 
-    //
-    // Methods for controlling the types of view
-    //
+    private void updateItem(int position, Object payload) {
+        if (position >= 0 && position < this.items.size())
+            this.dispatchItemRangeChanged(headers.size() + position, 1, payload);
+    }
 
+    /**
+     * Rebind view of the item with payload, onBindHolder(VH, int, Object, List) receives it.
+     *
+     * @param model   the element of items collection
+     * @param payload description of the change, null for full rebind
+     */
+    public void update(T model, Object payload) {
+        onMutated(AdapterMetrics.Mutator.UPDATE);
+        updateItem(getItemPosition(model), payload);
+    }
 
     /**
-     * Method compares the presentation stand with a collection of elements.
-     * The main type of cells has VIEW_TYPES#NORMAL.
-     * Headers and footers have as a type of its own serial number offset to a certain constant.
+     * Replace item in items collection. View is rebound with payload of the change detector.
      *
-     * @param position of adapter view.
-     * @return the type of view.
+     * @param position in items collection
+     * @see TrueRecyclerAdapter#setChangeDetector(ChangeDetector)
      */
-    @Override
-    public int getItemViewType(int position) {
-        int type;
-        if (headers.size() > 0 && position < headers.size())
-            type = VIEW_TYPES.HEADER + position;
-        else if (!footers.isEmpty() && position >= headers.size() + items.size())
-            type = position - headers.size() - items.size() + VIEW_TYPES.FOOTER;
-        else
-            type = getNormalType(position);
-        return type;
+    public void replace(int position, T model) {
+        onMutated(AdapterMetrics.Mutator.REPLACE);
+        replaceItem(position, model);
+    }
+
+    private void replaceItem(int position, T model) {
+        if (position < 0 || position >= this.items.size())
+            return;
+        if (unfilteredItems != null)
+            replaceUnfiltered(items.get(position), model);
+        T oldModel = store.replace(position, model);
+        if (changeDetector == null)
+            this.dispatchItemRangeChanged(headers.size() + position, 1, null);
+        else if (changeDetector.isChanged(oldModel, model))
+            this.dispatchItemRangeChanged(headers.size() + position, 1, changeDetector.getChangePayload(oldModel, model));
+        if (comparator != null)
+            moveToSortedPosition(position);
     }
 
     /**
-     * Method returns an integer variable which is associated with the normal type.
-     * By default method return VIEW_TYPES$NORMAL.
-     * You must override this method if your items may be presented in different forms.
+     * Replace item in items collection. View is rebound with payload of the change detector.
      *
-     * @param position of adapter view.
-     * @return int value.
+     * @param oldModel the element of items collection
      */
-    protected int getNormalType(int position) {
-        return VIEW_TYPES.NORMAL;
+    public void replace(T oldModel, T newModel) {
+        onMutated(AdapterMetrics.Mutator.REPLACE);
+        replaceItem(getItemPosition(oldModel), newModel);
     }
 
+    /**
+     * @param changeDetector payloads of replace(int, Object), null - views are rebound fully.
+     */
+    public void setChangeDetector(ChangeDetector<T> changeDetector) {
+        this.changeDetector = changeDetector;
+    }
 
-    public int getItemType(int position) {
-        if (!headers.isEmpty() && position < headers.size())
-            return VIEW_TYPES.HEADER;
-        else if (!footers.isEmpty() && position >= headers.size() + items.size())
-            return VIEW_TYPES.FOOTER;
-        else return VIEW_TYPES.NORMAL;
+
+    /**
+     * Items [position, position + count) were added to the end of items collection.
+     */
+    private void onItemsAppended(int position, int count) {
+        this.dispatchItemRangeInserted(headers.size() + position, count);
     }
 
     /**
-     * @param parent views container
-     * @param type   value of VIEW_TYPES
-     * @return the viewHolder for the specified type
+     * Items [position, position + count) were inserted before other items.
      */
-    @Override
-    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int type) {
-        View itemLayoutView;
-        if (type == VIEW_TYPES.NORMAL) {
-            return onCreateHolder(parent);
-        } else if (type >= VIEW_TYPES.HEADER) {
-            Object header = headers.get(type - VIEW_TYPES.HEADER);
-            if (header instanceof View) {
-                itemLayoutView = (View) header;
-                TrueUtils.removeParent(itemLayoutView);
-                ViewGroup.LayoutParams lp = parent.getLayoutParams();
-                lp.height = ViewGroup.LayoutParams.WRAP_CONTENT;
-                itemLayoutView.setLayoutParams(lp);
-                return onCreateHeaderHolder(itemLayoutView, parent);
+    private void onItemsInserted(int position, int count) {
+        boolean anchored = captureScrollAnchor(headers.size() + position);
+        this.dispatchItemRangeInserted(headers.size() + position, count);
+        if (anchored)
+            keepScrollAnchor();
+    }
+
+
+    //
+    // Sorted mode
+    //
+
+
+    /**
+     * Keep items sorted. Current items are sorted, add() and addAll() insert items
+     * at sorted positions, positions passed to them are ignored.
+     * Call resort(Object) when the sort key of the item is changed.
+     *
+     * @param comparator null - items are kept in order of adding.
+     */
+    public void setComparator(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+        if (comparator == null || items.size() < 2)
+            return;
+        List<T> sorted = new ArrayList<>(items);
+        Collections.sort(sorted, comparator);
+        if (TrueUtils.sameItems(items, sorted))
+            return;
+        store.set(sorted);
+        dispatchDataSetChanged();
+    }
+
+    /**
+     * @return order of items, null if items are not sorted.
+     */
+    public Comparator<? super T> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Move the item to its sorted position after change of its sort key, view is rebound.
+     *
+     * @param model the element of items collection
+     */
+    public void resort(T model) {
+        onMutated(AdapterMetrics.Mutator.RESORT);
+        int position = getItemPosition(model);
+        if (position < 0 || comparator == null)
+            return;
+        if (unfilteredItems != null)
+            replaceUnfiltered(model, model);
+        this.dispatchItemRangeChanged(headers.size() + position, 1, null);
+        moveToSortedPosition(position);
+    }
+
+    /**
+     * @return new position of the item.
+     */
+    private int moveToSortedPosition(int position) {
+        T model = items.get(position);
+        int target;
+        if (position > 0 && comparator.compare(items.get(position - 1), model) > 0)
+            target = findSortedPosition(items, model, 0, position);
+        else if (position < items.size() - 1 && comparator.compare(model, items.get(position + 1)) > 0)
+            // Positions after the item shift after its removal
+            target = findSortedPosition(items, model, position + 1, items.size()) - 1;
+        else
+            return position;
+        store.remove(position);
+        store.add(target, model);
+        dispatchItemMoved(headers.size() + position, headers.size() + target);
+        return target;
+    }
+
+    /**
+     * Insert page at sorted positions. Runs of items between the same neighbours are inserted at once,
+     * notifications are merged into one batch.
+     */
+    private void mergeSorted(Collection<? extends T> collection) {
+        if (collection.isEmpty())
+            return;
+        List<T> page = new ArrayList<T>(collection);
+        Collections.sort(page, comparator);
+        beginBatch();
+        int from = 0;
+        int low = 0;
+        while (from < page.size()) {
+            int position = findSortedPosition(items, page.get(from), low, items.size());
+            int to = from + 1;
+            if (position == items.size()) {
+                to = page.size();
+            } else {
+                T next = items.get(position);
+                while (to < page.size() && comparator.compare(page.get(to), next) < 0)
+                    to++;
+            }
+            boolean append = position == items.size();
+            store.addAll(position, page.subList(from, to));
+            if (append)
+                onItemsAppended(position, to - from);
+            else
+                onItemsInserted(position, to - from);
+            low = position + to - from;
+            from = to;
+        }
+        commit();
+    }
+
+    /**
+     * @return position after the last item of the sorted list not greater than model in [from, to).
+     */
+    private int findSortedPosition(List<T> list, T model, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparator.compare(list.get(middle), model) <= 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+
+    //
+    // Mutations from any thread
+    //
+
+
+    /**
+     * Change of the adapter posted from any thread.
+     */
+    public interface Mutation<T> {
+
+        /**
+         * Called on the main thread, changes of one frame are applied in one batch.
+         */
+        void apply(TrueRecyclerAdapter<T, ?> adapter);
+    }
+
+    /**
+     * Apply the mutation on the main thread on the next frame. Can be called from any thread,
+     * mutations are applied in order of posting.
+     */
+    public void post(Mutation<T> mutation) {
+        if (mutation == null)
+            throw new NullPointerException("mutation is null");
+        mutationQueue.post(mutation);
+    }
+
+    /**
+     * Add item on the next frame. Can be called from any thread.
+     */
+    public void postAdd(final T item) {
+        post(new Mutation<T>() {
+            @Override
+            public void apply(TrueRecyclerAdapter<T, ?> adapter) {
+                adapter.add(item);
+            }
+        });
+    }
+
+    /**
+     * Add items on the next frame. Can be called from any thread, the collection is copied.
+     */
+    public void postAddAll(Collection<? extends T> collection) {
+        final List<T> copy = new ArrayList<T>(collection);
+        post(new Mutation<T>() {
+            @Override
+            public void apply(TrueRecyclerAdapter<T, ?> adapter) {
+                adapter.addAll(copy);
+            }
+        });
+    }
+
+    /**
+     * Remove item on the next frame. Can be called from any thread.
+     */
+    public void postRemove(final T item) {
+        post(new Mutation<T>() {
+            @Override
+            public void apply(TrueRecyclerAdapter<T, ?> adapter) {
+                adapter.remove(item);
+            }
+        });
+    }
+
+    /**
+     * Set items on the next frame. Can be called from any thread, the collection is copied.
+     */
+    public void postSet(Collection<? extends T> collection) {
+        final List<T> copy = new ArrayList<T>(collection);
+        post(new Mutation<T>() {
+            @Override
+            public void apply(TrueRecyclerAdapter<T, ?> adapter) {
+                adapter.set(copy);
+            }
+        });
+    }
+
+    /**
+     * Publish immutable snapshots of items for reading from other threads.
+     * Call only from the main thread.
+     *
+     * @see TrueRecyclerAdapter#getSnapshot()
+     */
+    public void setSnapshotsEnabled(boolean enabled) {
+        mutationQueue.setSnapshotItems(enabled ? items : null);
+    }
+
+    /**
+     * Can be called from any thread without blocking. Items are copied once per frame with changes,
+     * so the snapshot can be one frame behind.
+     *
+     * @return immutable copy of items.
+     */
+    public List<T> getSnapshot() {
+        List<T> snapshot = mutationQueue.getSnapshot();
+        if (snapshot == null)
+            throw new IllegalStateException("Snapshots are disabled");
+        return snapshot;
+    }
+
+    /**
+     * Applies posted mutations of the frame in one batch.
+     */
+    private final MutationQueue.Receiver<T> mutationReceiver = new MutationQueue.Receiver<T>() {
+        @Override
+        public void onMutations(MutationQueue<T> queue) {
+            beginBatch();
+            try {
+                Mutation<T> mutation;
+                while ((mutation = queue.poll()) != null)
+                    mutation.apply(TrueRecyclerAdapter.this);
+            } finally {
+                commit();
+            }
+        }
+
+        @Override
+        public List<T> getSnapshotItems() {
+            return items;
+        }
+    };
+
+    private final MutationQueue<T> mutationQueue = new MutationQueue<>(mutationReceiver);
+
+
+    //
+    // Batch changes
+    //
+
+
+    /**
+     * Start recording of notifications. Changes of the collection are applied immediately,
+     * but notifications are merged and sent on commit(). Batches can be nested,
+     * notifications are sent on commit of the outer batch.
+     *
+     * @see TrueRecyclerAdapter#commit()
+     * @see TrueRecyclerAdapter#batch(Runnable)
+     */
+    public void beginBatch() {
+        if (batchDepth++ == 0)
+            pendingBatch = new UpdateBatch();
+    }
+
+    /**
+     * Send merged notifications of changes made after beginBatch().
+     */
+    public void commit() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("commit() without beginBatch()");
+        if (--batchDepth > 0)
+            return;
+        UpdateBatch batch = pendingBatch;
+        pendingBatch = null;
+        // Rows inserted inside the batch are anchored once, by positions before and after the batch
+        boolean anchored = scrollAnchorRequested && captureScrollAnchor(0);
+        scrollAnchorRequested = false;
+        if (batch.isDataSetChanged())
+            notifyDataSetChangedWithMetrics();
+        else
+            batch.dispatchTo(adapterUpdateCallback);
+        if (anchored)
+            keepScrollAnchor();
+        emptyViewSyncState();
+    }
+
+    /**
+     * Run changes of the collection in one batch.
+     *
+     * @param changes calls of add, remove and other methods of adapter.
+     */
+    public void batch(Runnable changes) {
+        beginBatch();
+        try {
+            changes.run();
+        } finally {
+            commit();
+        }
+    }
+
+    private ListUpdateCallback updateCallback() {
+        return pendingBatch != null ? pendingBatch : adapterUpdateCallback;
+    }
+
+    private void dispatchItemRangeInserted(int positionStart, int itemCount) {
+        if (itemCount <= 0)
+            return;
+        filterMask = null;
+        mutationQueue.markSnapshotDirty();
+        updateCallback().onInserted(positionStart, itemCount);
+        emptyViewSyncState();
+    }
+
+    private void dispatchItemRangeRemoved(int positionStart, int itemCount) {
+        if (itemCount <= 0)
+            return;
+        filterMask = null;
+        mutationQueue.markSnapshotDirty();
+        updateCallback().onRemoved(positionStart, itemCount);
+        emptyViewSyncState();
+    }
+
+    private void dispatchItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        if (itemCount <= 0)
+            return;
+        mutationQueue.markSnapshotDirty();
+        updateCallback().onChanged(positionStart, itemCount, payload);
+    }
+
+    private void dispatchItemMoved(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition)
+            return;
+        filterMask = null;
+        mutationQueue.markSnapshotDirty();
+        updateCallback().onMoved(fromPosition, toPosition);
+    }
+
+    private void dispatchDataSetChanged() {
+        filterMask = null;
+        mutationQueue.markSnapshotDirty();
+        if (pendingBatch != null)
+            pendingBatch.onDataSetChanged();
+        else
+            notifyDataSetChangedWithMetrics();
+        emptyViewSyncState();
+    }
+
+    /**
+     * Sends notifications to RecyclerView.
+     */
+    private final ListUpdateCallback adapterUpdateCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            if (metrics != null)
+                metrics.onNotified(AdapterMetrics.Notify.INSERTED, count);
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            if (metrics != null)
+                metrics.onNotified(AdapterMetrics.Notify.REMOVED, count);
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            if (metrics != null)
+                metrics.onNotified(AdapterMetrics.Notify.MOVED, 1);
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            if (metrics != null)
+                metrics.onNotified(AdapterMetrics.Notify.CHANGED, count);
+            notifyItemRangeChanged(position, count, payload);
+        }
+    };
+
+    private void notifyDataSetChangedWithMetrics() {
+        if (metrics != null)
+            metrics.onNotified(AdapterMetrics.Notify.DATA_SET_CHANGED, getItemCount());
+        notifyDataSetChanged();
+    }
+
+
+    //
+    // Metrics
+    //
+
+
+    /**
+     * Record timings of holders creation and binding per view type, counts of mutator calls and notifications.
+     * Without metrics the adapter doesn't read the clock.
+     *
+     * @param listener receiver of metrics.
+     * @see TrueRecyclerAdapter#reportMetrics()
+     */
+    public void enableMetrics(AdapterMetrics.Listener listener) {
+        if (listener == null)
+            throw new NullPointerException("listener is null");
+        if (metrics == null)
+            metrics = new AdapterMetrics();
+        metricsListener = listener;
+    }
+
+    /**
+     * Stop recording, recorded metrics are dropped.
+     */
+    public void disableMetrics() {
+        metrics = null;
+        metricsListener = null;
+    }
+
+    /**
+     * @return metrics recorded since the last report, null if metrics are disabled.
+     */
+    public AdapterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Pass recorded metrics to the listener and start recording again.
+     */
+    public void reportMetrics() {
+        if (metrics == null)
+            return;
+        metricsListener.onMetrics(metrics);
+        metrics.reset();
+    }
+
+    private void onMutated(AdapterMetrics.Mutator mutator) {
+        if (metrics != null)
+            metrics.onMutated(mutator);
+    }
+
+
+    //
+    // Position index
+    //
+
+
+    /**
+     * Enable index of items positions used by getItemPosition(Object), getItemPositionByKey(long) and remove(Object).
+     * Index is updated by adapter methods. If you change the items collection directly,
+     * call invalidatePositionIndex() after that.
+     *
+     * @param enabled true - enable index, false - use linear search.
+     */
+    public void setPositionIndexEnabled(boolean enabled) {
+        store.setPositionIndexEnabled(enabled);
+    }
+
+    /**
+     * Rebuild index of items positions on next search.
+     */
+    public void invalidatePositionIndex() {
+        indexReset();
+    }
+
+    private void indexReset() {
+        store.invalidatePositionIndex();
+    }
+
+
+    //
+    // Calculate changes of set() in background
+    //
+
+
+    /**
+     * Enable diff mode for set() methods: changes between old and new items are calculated
+     * on a background executor, then applied on the main thread with exact notifications.
+     * If set() is called again before the calculation ends, the old result is dropped.
+     * Other changes of the collection made before the result is applied are replaced by new items.
+     *
+     * @param diffCallback items comparison callback, null - disable diff mode.
+     */
+    public void setDiffCallback(DiffUtil.ItemCallback<T> diffCallback) {
+        cancelDiff();
+        this.diffCallback = diffCallback;
+        this.differ = diffCallback != null ? new TrueDiffer<T>() : null;
+    }
+
+    /**
+     * Set executor for calculation of changes. By default used one shared background thread.
+     * Call after setDiffCallback(DiffUtil.ItemCallback).
+     */
+    public void setDiffExecutor(Executor executor) {
+        if (differ != null)
+            differ.setExecutor(executor);
+    }
+
+    private void cancelDiff() {
+        if (differ != null)
+            differ.cancel();
+    }
+
+    private final TrueDiffer.Receiver<T> diffReceiver = new TrueDiffer.Receiver<T>() {
+        @Override
+        public void onDiffCalculated(List<T> oldItems, List<T> newItems, DiffUtil.DiffResult result) {
+            boolean changedMeanwhile = !TrueUtils.sameItems(items, oldItems);
+            store.set(newItems);
+            resetPageWindow();
+            if (changedMeanwhile)
+                dispatchDataSetChanged();
+            else
+                result.dispatchUpdatesTo(itemsUpdateCallback);
+        }
+    };
+
+    /**
+     * Translates positions in items collection to adapter positions.
+     */
+    private final ListUpdateCallback itemsUpdateCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            dispatchItemRangeInserted(headers.size() + position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            dispatchItemRangeRemoved(headers.size() + position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            dispatchItemMoved(headers.size() + fromPosition, headers.size() + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            dispatchItemRangeChanged(headers.size() + position, count, payload);
+        }
+    };
+
+
+    //
+    // Filtering in background
+    //
+
+
+    /**
+     * Set predicate of filter(CharSequence).
+     * Clears applied filter, all items are shown again.
+     */
+    public void setFilter(ItemFilter<T> filter) {
+        clearFilter();
+        this.itemFilter = filter;
+        this.filterRunner = filter != null ? new TrueFilter<T>() : null;
+    }
+
+    /**
+     * Set executor for filtering. By default used one shared background thread.
+     * Call after setFilter(ItemFilter).
+     */
+    public void setFilterExecutor(Executor executor) {
+        if (filterRunner != null)
+            filterRunner.setExecutor(executor);
+    }
+
+    /**
+     * Show only items matching the query. Items are filtered in background and
+     * the shown list is updated with the changes only, previous running filtering is cancelled.
+     * If the query narrows the shown one, only the shown items are filtered.
+     * <p>
+     * While filter is applied, set() replaces all items and filters them again. Other changes
+     * of the collection are applied to all items too, added items are shown if they match the shown query.
+     *
+     * @param query null or empty to show all items.
+     * @see TrueRecyclerAdapter#setFilter(ItemFilter)
+     */
+    public void filter(CharSequence query) {
+        if (itemFilter == null)
+            throw new IllegalStateException("Set filter before filtering");
+        if (query == null || query.length() == 0) {
+            clearFilter();
+            return;
+        }
+        if (unfilteredItems == null) {
+            unfilteredItems = new ArrayList<>(items);
+            filterMask = new BitSet(items.size());
+            filterMask.set(0, items.size());
+        }
+        submitFilter(query);
+    }
+
+    /**
+     * Show all items again.
+     */
+    public void clearFilter() {
+        if (unfilteredItems != null)
+            submitFilter(null);
+    }
+
+    /**
+     * @return true if filter is applied or being applied.
+     */
+    public boolean isFiltered() {
+        return unfilteredItems != null;
+    }
+
+    /**
+     * @return query of the shown items, null if items are not filtered.
+     */
+    public CharSequence getFilterQuery() {
+        return filterQuery;
+    }
+
+    /**
+     * @return all items, not only shown by filter.
+     */
+    public List<T> getUnfilteredItems() {
+        return unfilteredItems != null ? unfilteredItems : items;
+    }
+
+    private void submitFilter(CharSequence query) {
+        boolean narrowing = query != null && filterQuery != null && filterMask != null
+                && itemFilter.isNarrowing(filterQuery, query);
+        pendingFilterQuery = query;
+        filterPending = true;
+        filterStale = false;
+        // Copy, unfiltered items can be changed while filtering
+        filterRunner.submit(new ArrayList<>(unfilteredItems), query, itemFilter, narrowing, filterMask,
+                filterMask == null ? new ArrayList<>(items) : null, diffCallback, filterReceiver);
+    }
+
+    private void cancelFilter() {
+        if (filterRunner != null)
+            filterRunner.cancel();
+        unfilteredItems = null;
+        filterQuery = null;
+        pendingFilterQuery = null;
+        filterPending = false;
+        filterStale = false;
+        filterMask = null;
+    }
+
+    /**
+     * Add items to all items while filter is applied, before the shown item at the position.
+     * In sorted mode items are added at sorted positions.
+     *
+     * @param position in shown items, POSITION_NONE - to the end.
+     * @return added items matching the query of the shown items.
+     */
+    private List<T> addUnfiltered(int position, Collection<? extends T> collection) {
+        onUnfilteredChanged();
+        if (comparator != null) {
+            for (T item : collection)
+                unfilteredItems.add(findSortedPosition(unfilteredItems, item, 0, unfilteredItems.size()), item);
+        } else {
+            int index = position >= 0 && position < items.size()
+                    ? indexOfInstance(unfilteredItems, items.get(position)) : unfilteredItems.size();
+            unfilteredItems.addAll(index, collection);
+        }
+        List<T> shown = new ArrayList<>(collection.size());
+        for (T item : collection) {
+            if (filterQuery == null || itemFilter.matches(item, filterQuery))
+                shown.add(item);
+        }
+        return shown;
+    }
+
+    /**
+     * Single item version of addUnfiltered(int, Collection), doesn't allocate.
+     *
+     * @return true if the item matches the query of the shown items.
+     */
+    private boolean addUnfiltered(int position, T item) {
+        onUnfilteredChanged();
+        if (comparator != null) {
+            unfilteredItems.add(findSortedPosition(unfilteredItems, item, 0, unfilteredItems.size()), item);
+        } else {
+            int index = position >= 0 && position < items.size()
+                    ? indexOfInstance(unfilteredItems, items.get(position)) : unfilteredItems.size();
+            unfilteredItems.add(index, item);
+        }
+        return filterQuery == null || itemFilter.matches(item, filterQuery);
+    }
+
+    private void removeUnfiltered(T model) {
+        onUnfilteredChanged();
+        int index = indexOfInstance(unfilteredItems, model);
+        if (index < unfilteredItems.size())
+            unfilteredItems.remove(index);
+    }
+
+    /**
+     * Replace the item in all items, in sorted mode the new item is moved to its sorted position.
+     */
+    private void replaceUnfiltered(T oldModel, T newModel) {
+        onUnfilteredChanged();
+        int index = indexOfInstance(unfilteredItems, oldModel);
+        if (index == unfilteredItems.size())
+            return;
+        if (comparator == null) {
+            unfilteredItems.set(index, newModel);
+        } else {
+            unfilteredItems.remove(index);
+            unfilteredItems.add(findSortedPosition(unfilteredItems, newModel, 0, unfilteredItems.size()), newModel);
+        }
+    }
+
+    private void onUnfilteredChanged() {
+        // Mask positions and the running filtering refer to the old unfiltered items
+        filterMask = null;
+        if (filterPending)
+            filterStale = true;
+    }
+
+    /**
+     * @return position of the instance in the list, size of the list if not found.
+     */
+    private static <T> int indexOfInstance(List<T> list, T model) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == model)
+                return i;
+        }
+        return list.size();
+    }
+
+    private final TrueFilter.Receiver<T> filterReceiver = new TrueFilter.Receiver<T>() {
+        @Override
+        public void onFiltered(CharSequence query, BitSet oldMask, List<T> oldShown,
+                               BitSet newMask, List<T> newItems, UpdateBatch updates) {
+            filterPending = false;
+            if (filterStale) {
+                // Items added or removed meanwhile would be lost, filter them again
+                submitFilter(query);
+                return;
+            }
+            boolean changedMeanwhile = oldMask != null ? filterMask != oldMask : !TrueUtils.sameItems(items, oldShown);
+            store.set(newItems);
+            resetPageWindow();
+            beginBatch();
+            if (changedMeanwhile)
+                dispatchDataSetChanged();
+            else
+                updates.dispatchTo(itemsUpdateCallback);
+            commit();
+            if (query != null) {
+                filterQuery = query;
+                filterMask = newMask;
+            } else {
+                unfilteredItems = null;
+                filterQuery = null;
+                filterMask = null;
+            }
+        }
+    };
+
+
+    //
+    // Methods for controlling the types of view
+    //
+
+
+    /**
+     * Method compares the presentation stand with a collection of elements.
+     * The main type of cells has VIEW_TYPES#NORMAL.
+     * Headers, footers and item delegates have types from their own reserved ranges,
+     * headers and footers use its own serial number offset to the start of range.
+     *
+     * @param position of adapter view.
+     * @return the type of view.
+     */
+    @Override
+    public int getItemViewType(int position) {
+        int type;
+        if (headers.size() > 0 && position < headers.size())
+            type = VIEW_TYPES.HEADER_FIRST + (typesByContent ? getContentType(headers.get(position)) : position);
+        else if (!footers.isEmpty() && position >= headers.size() + items.size())
+            type = VIEW_TYPES.FOOTER_FIRST + (typesByContent ? getContentType(footers.get(getRelativeFooterPosition(position)))
+                    : getRelativeFooterPosition(position));
+        else if (!delegateTypes.isEmpty() || !predicateDelegates.isEmpty())
+            type = getDelegateType(position);
+        else
+            type = getCheckedNormalType(position);
+        return type;
+    }
+
+    /**
+     * Method returns an integer variable which is associated with the normal type.
+     * By default method return VIEW_TYPES$NORMAL.
+     * You must override this method if your items may be presented in different forms.
+     * Values not greater than RESERVED_VIEW_TYPE_MAX are reserved.
+     *
+     * @param position of adapter view.
+     * @return int value.
+     * @see TrueRecyclerAdapter#addDelegate(Class, ItemDelegate)
+     */
+    protected int getNormalType(int position) {
+        return VIEW_TYPES.NORMAL;
+    }
+
+    private int getCheckedNormalType(int position) {
+        int type = getNormalType(position);
+        if (type <= RESERVED_VIEW_TYPE_MAX)
+            throw new IllegalStateException("View type " + type + " is reserved for headers, footers and delegates");
+        return type;
+    }
+
+
+    public int getItemType(int position) {
+        return store.getRowType(position);
+    }
+
+    /**
+     * @param parent views container
+     * @param type   value of VIEW_TYPES
+     * @return the viewHolder for the specified type
+     */
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int type) {
+        if (metrics == null)
+            return createHolder(parent, type);
+        long start = System.nanoTime();
+        RecyclerView.ViewHolder holder = createHolder(parent, type);
+        metrics.onCreated(type, System.nanoTime() - start);
+        return holder;
+    }
+
+    private RecyclerView.ViewHolder createHolder(ViewGroup parent, int type) {
+        View itemLayoutView;
+        if (type == VIEW_TYPES.NORMAL) {
+            return onCreateHolder(parent);
+        } else if (type > RESERVED_VIEW_TYPE_MAX) {
+            ItemDelegate<? extends T, ?> delegate = typedDelegates.get(type);
+            return delegate != null ? delegate.onCreateViewHolder(parent) : onCreateOtherHolder(parent, type);
+        } else if (type >= VIEW_TYPES.DELEGATE_FIRST) {
+            return delegates.get(type - VIEW_TYPES.DELEGATE_FIRST).onCreateViewHolder(parent);
+        } else if (type < VIEW_TYPES.FOOTER_FIRST) {
+            Object header = typesByContent ? contentTypeKeys.get(type - VIEW_TYPES.HEADER_FIRST)
+                    : headers.get(type - VIEW_TYPES.HEADER_FIRST);
+            if (header instanceof View) {
+                itemLayoutView = (View) header;
+                TrueUtils.prepareHeaderOrFooterView(itemLayoutView);
+                return onCreateHeaderHolder(itemLayoutView, parent);
             } else {
                 return onCreateHeaderHolder(parent);
             }
-        } else if (type <= VIEW_TYPES.FOOTER) {
-            Object footer = footers.get(type - VIEW_TYPES.FOOTER);
+        } else {
+            Object footer = typesByContent ? contentTypeKeys.get(type - VIEW_TYPES.FOOTER_FIRST)
+                    : footers.get(type - VIEW_TYPES.FOOTER_FIRST);
             if (footer instanceof View) {
                 itemLayoutView = (View) footer;
-                TrueUtils.removeParent(itemLayoutView);
-                ViewGroup.LayoutParams lp = parent.getLayoutParams();
-                lp.height = ViewGroup.LayoutParams.WRAP_CONTENT;
-                itemLayoutView.setLayoutParams(lp);
+                TrueUtils.prepareHeaderOrFooterView(itemLayoutView);
                 return onCreateFooterHolder(itemLayoutView, parent);
             } else {
                 return onCreateFooterHolder(parent);
             }
-        } else return onCreateOtherHolder(parent, type);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        if (metrics == null) {
+            TrueUtils.takePooled(holder);
+            bindHolder(holder, position, payloads);
+            return;
+        }
+        long start = System.nanoTime();
+        bindHolder(holder, position, payloads);
+        metrics.onBound(holder.getItemViewType(), System.nanoTime() - start, TrueUtils.takePooled(holder));
+    }
+
+    /**
+     * Marks the holder going to RecycledViewPool, its next bind is a recycle hit of metrics.
+     * Overriding methods must call super.
+     */
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        TrueUtils.markPooled(holder);
+    }
+
+    private void bindHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty() || getItemType(position) != VIEW_TYPES.NORMAL) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        ItemDelegate<? extends T, ?> delegate = getBoundDelegate(holder.getItemViewType());
+        if (delegate != null)
+            ((ItemDelegate<T, RecyclerView.ViewHolder>) delegate)
+                    .onBindViewHolder(holder, position, getItem(getRelativeItemPosition(position)), payloads);
+        else
+            onBindHolder((VH) holder, position, getItem(getRelativeItemPosition(position)), payloads);
     }
 
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
         int type = getItemType(position);
         if (type == VIEW_TYPES.NORMAL) {
-            onBindHolder((VH) holder, position, getItem(getRelativeItemPosition(position)));
+            ItemDelegate<? extends T, ?> delegate = getBoundDelegate(holder.getItemViewType());
+            if (delegate != null)
+                ((ItemDelegate<T, RecyclerView.ViewHolder>) delegate)
+                        .onBindViewHolder(holder, position, getItem(getRelativeItemPosition(position)));
+            else
+                onBindHolder((VH) holder, position, getItem(getRelativeItemPosition(position)));
         } else if (type >= VIEW_TYPES.HEADER) {
             onBindHeaderHolder(holder, position);
         } else if (type <= VIEW_TYPES.FOOTER) {
@@ -515,6 +1827,17 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
         } else onBindOtherHolder(holder, position);
     }
 
+    /**
+     * @return delegate of the item view type, null if item is bound by onBindHolder.
+     */
+    private ItemDelegate<? extends T, ?> getBoundDelegate(int viewType) {
+        if (viewType >= VIEW_TYPES.DELEGATE_FIRST && viewType <= RESERVED_VIEW_TYPE_MAX)
+            return delegates.get(viewType - VIEW_TYPES.DELEGATE_FIRST);
+        else if (viewType > RESERVED_VIEW_TYPE_MAX && viewType != VIEW_TYPES.NORMAL && typedDelegates.size() > 0)
+            return typedDelegates.get(viewType);
+        return null;
+    }
+
     /**
      * You must override this method for change header holder.
      *
@@ -566,10 +1889,51 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
         return new DefaultViewHolder(parent);
     }
 
+    /**
+     * Inflate views of the layout on a background thread ahead of demand,
+     * while the adapter is attached to RecyclerView.
+     * Use inflate(ViewGroup, int) in onCreateHolder to take them.
+     *
+     * @param layout    layout resource.
+     * @param queueSize max number of views kept ready, 0 to disable pre-inflation of the layout.
+     */
+    public void setPreInflatedLayout(int layout, int queueSize) {
+        preInflater.register(layout, queueSize);
+    }
+
+    /**
+     * Set executor for pre-inflation of layouts. By default used one shared background thread.
+     */
+    public void setInflationExecutor(Executor executor) {
+        preInflater.setExecutor(executor);
+    }
+
+    /**
+     * Inflate view of the item without attaching to parent.
+     *
+     * @param parent - root element from onCreateHolder
+     * @param layout - layout resource
+     * @return pre-inflated view if it's ready, else the view inflated synchronously.
+     * @see #setPreInflatedLayout(int, int)
+     */
+    protected View inflate(ViewGroup parent, int layout) {
+        return preInflater.take(parent, layout);
+    }
+
     public void onBindHolder(VH holder, int position, T model) {
 
     }
 
+    /**
+     * Override this method for partial rebind of the changed item.
+     *
+     * @param payloads not empty payloads of update(int, Object) and the change detector
+     * @see TrueRecyclerAdapter#update(int, Object)
+     */
+    public void onBindHolder(VH holder, int position, T model, List<Object> payloads) {
+        onBindHolder(holder, position, model);
+    }
+
     public void onBindHeaderHolder(RecyclerView.ViewHolder holder, int position) {
 
     }
@@ -586,9 +1950,135 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * The element types numerically
      */
     private class VIEW_TYPES {
-        static final int HEADER = 1000;
-        static final int NORMAL = 0;
-        static final int FOOTER = -1000;
+        static final int HEADER = ItemStore.ROW_HEADER;
+        static final int NORMAL = ItemStore.ROW_ITEM;
+        static final int FOOTER = ItemStore.ROW_FOOTER;
+
+        // Ranges of view types
+        static final int RANGE = 1 << 28;
+        static final int HEADER_FIRST = Integer.MIN_VALUE;
+        static final int FOOTER_FIRST = HEADER_FIRST + RANGE;
+        static final int DELEGATE_FIRST = FOOTER_FIRST + RANGE;
+    }
+
+
+    //
+    // View types of headers and footers
+    //
+
+
+    /**
+     * Set view types of headers and footers by their content instead of position.
+     * Header or footer view gets its own view type that does not change when other headers are added or removed,
+     * headers and footers with data share view type by the data class, so their holders are recycled
+     * through RecycledViewPool. Call before setting adapter to RecyclerView.
+     *
+     * @param enabled false - view type by position (default).
+     * @see TrueRecyclerAdapter#getContentTypeKey(Object)
+     */
+    public void setHeaderFooterTypesByContent(boolean enabled) {
+        this.typesByContent = enabled;
+    }
+
+    /**
+     * Headers and footers with equal keys share view type and view holders.
+     * By default the key of a view is the view itself and the key of data is its class.
+     * Override to split data of one class into several types.
+     *
+     * @param headerOrFooter element of headers or footers collection.
+     * @return key of view type.
+     */
+    protected Object getContentTypeKey(Object headerOrFooter) {
+        if (headerOrFooter == null || headerOrFooter instanceof View)
+            return headerOrFooter;
+        return headerOrFooter.getClass();
+    }
+
+    private int getContentType(Object headerOrFooter) {
+        Object key = getContentTypeKey(headerOrFooter);
+        Integer type = contentTypes.get(key);
+        if (type == null) {
+            // Types are never reused, a pooled holder of the old type may still hold removed view
+            if (nextContentType == VIEW_TYPES.RANGE)
+                throw new IllegalStateException("Too many header and footer types");
+            type = nextContentType++;
+            contentTypeKeys.put(type, key);
+            contentTypes.put(key, type);
+        }
+        return type;
+    }
+
+
+    //
+    // Item delegates
+    //
+
+
+    /**
+     * Present items of the model class by the delegate. The class is matched exactly,
+     * so the view type of an item is found in constant time.
+     *
+     * @return view type of the delegate.
+     */
+    public int addDelegate(Class<? extends T> modelClass, ItemDelegate<? extends T, ?> delegate) {
+        if (delegateTypes.containsKey(modelClass))
+            throw new IllegalArgumentException("Delegate for " + modelClass.getName() + " is already added");
+        int type = registerDelegate(delegate);
+        delegateTypes.put(modelClass, type);
+        return type;
+    }
+
+    /**
+     * Present items of the model class by the delegate with the given view type.
+     * Use it to share holders of the delegate between adapters.
+     *
+     * @param viewType view type greater than RESERVED_VIEW_TYPE_MAX, for example from TruePoolManager#getViewType(String).
+     * @see TruePoolManager
+     */
+    public void addDelegate(int viewType, Class<? extends T> modelClass, ItemDelegate<? extends T, ?> delegate) {
+        if (viewType <= RESERVED_VIEW_TYPE_MAX || viewType == VIEW_TYPES.NORMAL)
+            throw new IllegalArgumentException("View type " + viewType + " is reserved");
+        if (delegate == null)
+            throw new NullPointerException("delegate is null");
+        if (delegateTypes.containsKey(modelClass))
+            throw new IllegalArgumentException("Delegate for " + modelClass.getName() + " is already added");
+        typedDelegates.put(viewType, delegate);
+        delegateTypes.put(modelClass, viewType);
+    }
+
+    /**
+     * Present items accepted by ItemDelegate#isForItem(Object, int). Such delegates are checked in order of adding,
+     * after delegates added with model class.
+     *
+     * @return view type of the delegate.
+     */
+    public int addDelegate(ItemDelegate<? extends T, ?> delegate) {
+        int type = registerDelegate(delegate);
+        predicateDelegates.add(delegate);
+        predicateDelegateTypes.add(type);
+        return type;
+    }
+
+    private int registerDelegate(ItemDelegate<? extends T, ?> delegate) {
+        if (delegate == null)
+            throw new NullPointerException("delegate is null");
+        if (delegates.size() == VIEW_TYPES.RANGE)
+            throw new IllegalStateException("Too many delegates");
+        delegates.add(delegate);
+        return VIEW_TYPES.DELEGATE_FIRST + delegates.size() - 1;
+    }
+
+    private int getDelegateType(int position) {
+        int itemPosition = getRelativeItemPosition(position);
+        T model = getItem(itemPosition);
+        Integer type = model != null ? delegateTypes.get(model.getClass()) : null;
+        if (type != null)
+            return type;
+        for (int i = 0; i < predicateDelegates.size(); i++) {
+            if (((ItemDelegate<T, ?>) predicateDelegates.get(i)).isForItem(model, itemPosition))
+                return predicateDelegateTypes.get(i);
+        }
+        return getCheckedNormalType(position);
     }
 
     /**
@@ -626,35 +2116,153 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
 
     /**
      * Call this method if you want to start track challenge load more.
+     * Supported LinearLayoutManager, GridLayoutManager and StaggeredGridLayoutManager.
+     * Adapter keeps one scroll listener: repeated calls replace it, it follows the adapter
+     * when it is set to other RecyclerView and is removed by disableLoadMore().
      */
     public void enableLoadMore(RecyclerView recyclerView, TrueRecyclerAdapter.LoadMoreListener loadMoreListener) {
         setLoadMoreListener(loadMoreListener);
+        loadMoreEnabled = true;
+        resetPrefetch();
         if (recyclerView != null)
-            recyclerView
-                    .addOnScrollListener(new RecyclerView.OnScrollListener() {
-                        @Override
-                        public void onScrolled(RecyclerView recyclerView,
-                                               int dx, int dy) {
-                            super.onScrolled(recyclerView, dx, dy);
-                            int totalItemCount;
-                            int lastVisibleItem;
-
-                            if (recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
-                                LinearLayoutManager linearLayoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
-                                totalItemCount = linearLayoutManager.getItemCount();
-                                lastVisibleItem = linearLayoutManager.findLastVisibleItemPosition();
-                            } else {
-                                throw new IllegalArgumentException("Unsupported LayoutManager for load more");
-                            }
-
-                            if (!isLoading() && !isAllLoaded()
-                                    && totalItemCount <= (lastVisibleItem + visibleThreshold) && !items.isEmpty() && loadMoreCondition()) {
-                                loadingStartWithLoadMore();
-                                if (TrueRecyclerAdapter.this.loadMoreListener != null)
-                                    TrueRecyclerAdapter.this.loadMoreListener.loadMore();
-                            }
-                        }
-                    });
+            attachScrollListener(recyclerView);
+    }
+
+    /**
+     * Stop track challenge load more and remove scroll listener from RecyclerView.
+     */
+    public void disableLoadMore() {
+        loadMoreEnabled = false;
+        if (!loadPreviousEnabled)
+            detachScrollListener();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        attachedRecyclerView = recyclerView;
+        preInflater.attach(recyclerView);
+        if (loadMoreEnabled || loadPreviousEnabled)
+            attachScrollListener(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        if (attachedRecyclerView == recyclerView)
+            attachedRecyclerView = null;
+        if (metrics != null)
+            reportMetrics();
+        if (preInflater.getParent() == recyclerView)
+            preInflater.detach();
+        if (scrollListener != null && scrollListener.recyclerView == recyclerView)
+            detachScrollListener();
+    }
+
+    private void attachScrollListener(RecyclerView recyclerView) {
+        if (scrollListener != null && scrollListener.recyclerView == recyclerView)
+            return;
+        detachScrollListener();
+        scrollListener = new LoadMoreScrollListener(recyclerView);
+        recyclerView.addOnScrollListener(scrollListener);
+    }
+
+    private void detachScrollListener() {
+        if (scrollListener != null) {
+            scrollListener.recyclerView.removeOnScrollListener(scrollListener);
+            scrollListener = null;
+        }
+    }
+
+    /**
+     * Checks load more and load previous conditions when visible positions change.
+     */
+    private class LoadMoreScrollListener extends RecyclerView.OnScrollListener {
+        final RecyclerView recyclerView;
+
+        private RecyclerView.LayoutManager layoutManager;
+        private LinearLayoutManager linearLayoutManager;
+        private StaggeredGridLayoutManager staggeredLayoutManager;
+
+        // Buffer for visible positions of StaggeredGridLayoutManager spans
+        private int[] spanPositions;
+
+        private int lastFirstVisibleItem = RecyclerView.NO_POSITION;
+        private int lastLastVisibleItem = RecyclerView.NO_POSITION;
+        private int lastTotalItemCount;
+
+        LoadMoreScrollListener(RecyclerView recyclerView) {
+            this.recyclerView = recyclerView;
+        }
+
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            super.onScrolled(recyclerView, dx, dy);
+            if (recyclerView.getLayoutManager() != layoutManager)
+                setLayoutManager(recyclerView.getLayoutManager());
+
+            int totalItemCount;
+            int firstVisibleItem;
+            int lastVisibleItem;
+            if (linearLayoutManager != null) {
+                totalItemCount = linearLayoutManager.getItemCount();
+                firstVisibleItem = linearLayoutManager.findFirstVisibleItemPosition();
+                lastVisibleItem = linearLayoutManager.findLastVisibleItemPosition();
+            } else {
+                if (spanPositions.length != staggeredLayoutManager.getSpanCount())
+                    spanPositions = new int[staggeredLayoutManager.getSpanCount()];
+                totalItemCount = staggeredLayoutManager.getItemCount();
+                firstVisibleItem = TrueUtils.min(staggeredLayoutManager.findFirstVisibleItemPositions(spanPositions));
+                lastVisibleItem = TrueUtils.max(staggeredLayoutManager.findLastVisibleItemPositions(spanPositions));
+            }
+
+            if (firstVisibleItem == lastFirstVisibleItem && lastVisibleItem == lastLastVisibleItem
+                    && totalItemCount == lastTotalItemCount)
+                return;
+            lastFirstVisibleItem = firstVisibleItem;
+            lastLastVisibleItem = lastVisibleItem;
+            lastTotalItemCount = totalItemCount;
+
+            if (pageWindowListener != null && !snapshotStore.isRestoring())
+                syncPageWindow(firstVisibleItem, lastVisibleItem);
+
+            int threshold = visibleThreshold;
+            if (prefetch != null) {
+                prefetch.onScrolled(lastVisibleItem, SystemClock.uptimeMillis());
+                threshold = prefetch.threshold(visibleThreshold, visibleThreshold + pageCount);
+            }
+
+            // After an error load more waits for explicit retry, for example loadNextPage()
+            if (loadMoreEnabled && !isLoading() && !isAllLoaded() && !error && !snapshotStore.isRestoring()
+                    && totalItemCount <= (lastVisibleItem + threshold) && !items.isEmpty() && loadMoreCondition()) {
+                loadingStartWithLoadMore();
+                if (TrueRecyclerAdapter.this.loadMoreListener != null)
+                    TrueRecyclerAdapter.this.loadMoreListener.loadMore();
+            }
+
+            if (loadPreviousEnabled && !isLoadingPrevious() && !isAllPreviousLoaded() && !snapshotStore.isRestoring()
+                    && firstVisibleItem != RecyclerView.NO_POSITION && firstVisibleItem <= previousThreshold
+                    && !items.isEmpty() && loadPreviousCondition()) {
+                loadingStartWithLoadPrevious();
+                if (TrueRecyclerAdapter.this.loadPreviousListener != null)
+                    TrueRecyclerAdapter.this.loadPreviousListener.loadPrevious();
+            }
+        }
+
+        private void setLayoutManager(RecyclerView.LayoutManager layoutManager) {
+            this.layoutManager = layoutManager;
+            linearLayoutManager = null;
+            staggeredLayoutManager = null;
+            if (layoutManager instanceof LinearLayoutManager) {
+                // Also GridLayoutManager
+                linearLayoutManager = (LinearLayoutManager) layoutManager;
+            } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+                staggeredLayoutManager = (StaggeredGridLayoutManager) layoutManager;
+                spanPositions = new int[staggeredLayoutManager.getSpanCount()];
+            } else {
+                throw new IllegalArgumentException("Unsupported LayoutManager for load more");
+            }
+        }
     }
 
     /**
@@ -662,6 +2270,8 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * This method starts by default adapter.
      */
     void loadingStartWithLoadMore() {
+        if (prefetch != null)
+            prefetch.onLoadStarted(SystemClock.uptimeMillis());
         this.setLoading(true);
         this.onChangeLoadMoreProgressState(true);
     }
@@ -670,6 +2280,8 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      * Call this method if you want to inform the adapter to finishing loading items.
      */
     public void loaded() {
+        if (prefetch != null)
+            prefetch.onLoaded(SystemClock.uptimeMillis());
         this.onChangeLoadMoreProgressState(false);
         this.setLoading(false);
     }
@@ -689,6 +2301,7 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     public void setAllLoaded(boolean allLoaded) {
         this.allLoaded = allLoaded;
+        emptyViewSyncState();
     }
 
     /**
@@ -709,6 +2322,25 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
         this.visibleThreshold = visibleThreshold;
     }
 
+    /**
+     * Enable velocity-aware prefetch: load more starts earlier when the user scrolls fast,
+     * so the next page is loaded before the end of the list is reached. The threshold grows
+     * by the number of items scrolled during the measured page loading time, up to visibleThreshold + pageCount.
+     *
+     * @param enabled false - use only visibleThreshold.
+     */
+    public void setPrefetchEnabled(boolean enabled) {
+        this.prefetch = enabled ? new LoadMorePrefetch() : null;
+    }
+
+    /**
+     * Scroll samples and the unfinished page load of old data must not be counted for the new one.
+     */
+    private void resetPrefetch() {
+        if (prefetch != null)
+            prefetch.reset();
+    }
+
     /**
      * Set load more listener.
      */
@@ -737,6 +2369,9 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
      */
     void setLoading(boolean isLoading) {
         this.isLoading = isLoading;
+        if (isLoading)
+            this.error = false;
+        emptyViewSyncState();
     }
 
     /**
@@ -793,11 +2428,10 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
     private void onChangeLoadMoreProgressState(boolean show) {
         if (show && footers.isEmpty()) {
             footers.add(getFooterProgress());
-            notifyItemInserted(getItemCount() - 1);
-        } else if (!show && !footers.isEmpty()) {
-            footers.remove(footers.size() - 1);
-            notifyItemRemoved(getItemCount());
-            notifyItemChanged(getItemCount(), null);
+            progressFooterShown = true;
+            dispatchItemRangeInserted(getItemCount() - 1, 1);
+        } else if (!show && progressFooterShown) {
+            removeFooterAt(0);
         }
     }
 
@@ -810,29 +2444,648 @@ public abstract class TrueRecyclerAdapter<T, VH extends RecyclerView.ViewHolder>
 
 
     //
-    // Empty view
+    // Load previous functional
     //
 
+
     /**
-     * Use only EmptyViewAdapterInterface instance or ready-made solution: https://github.com/jaksab/EmptyView
+     * Call this method if you want to start track challenge load previous, for example older messages of chat.
+     * Works like load more at the top of the list: add the loaded page by addAll(0, List) and call loadedPrevious(),
+     * the first visible item keeps its place. Supported vertical LinearLayoutManager, GridLayoutManager
+     * and StaggeredGridLayoutManager without reverse layout. The place is kept for every insert above
+     * the first visible item, also without load previous, changes inside batch() are anchored once on commit.
+     *
+     * @see TrueRecyclerAdapter#loadedPrevious()
      */
-    public void setEmptyView(Object emptyView) {
-        if (emptyView instanceof EmptyViewAdapterInterface ||
-                emptyView.getClass().getName().equals("pro.oncreate.emptyview.EmptyView"))
-            this.emptyView = emptyView;
+    public void enableLoadPrevious(RecyclerView recyclerView, LoadPreviousListener loadPreviousListener) {
+        this.loadPreviousListener = loadPreviousListener;
+        loadPreviousEnabled = true;
+        if (recyclerView != null)
+            attachScrollListener(recyclerView);
+    }
+
+    /**
+     * Stop track challenge load previous.
+     */
+    public void disableLoadPrevious() {
+        loadPreviousEnabled = false;
+        if (!loadMoreEnabled)
+            detachScrollListener();
+    }
+
+    /**
+     * Call this method if you want to inform the adapter to beginning loading previous items.
+     * This method starts by default adapter.
+     */
+    void loadingStartWithLoadPrevious() {
+        this.setLoadingPrevious(true);
+        this.onChangeLoadPreviousProgressState(true);
+    }
+
+    /**
+     * Call this method if you want to inform the adapter to finishing loading previous items.
+     */
+    public void loadedPrevious() {
+        this.onChangeLoadPreviousProgressState(false);
+        this.setLoadingPrevious(false);
+    }
+
+    /**
+     * Set loading previous now state. If true load previous events will not come.
+     */
+    void setLoadingPrevious(boolean isLoadingPrevious) {
+        this.isLoadingPrevious = isLoadingPrevious;
+    }
+
+    /**
+     * Get loading previous now state value.
+     */
+    public boolean isLoadingPrevious() {
+        return isLoadingPrevious;
+    }
+
+    /**
+     * Set loading all previous pages complete state. If true load previous events will not come.
+     *
+     * @param allPreviousLoaded first item loading
+     */
+    public void loadingPreviousFinish(boolean allPreviousLoaded) {
+        this.allPreviousLoaded = allPreviousLoaded;
+    }
+
+    /**
+     * Get loading all previous pages state value.
+     */
+    public boolean isAllPreviousLoaded() {
+        return allPreviousLoaded;
+    }
+
+    /**
+     * Get previous threshold value.
+     */
+    public int getPreviousThreshold() {
+        return previousThreshold;
+    }
+
+    /**
+     * Set previous threshold value.
+     *
+     * @param previousThreshold call load previous when the first visible position is not greater.
+     */
+    public void setPreviousThreshold(int previousThreshold) {
+        this.previousThreshold = previousThreshold;
+    }
+
+    /**
+     * The same as loadMoreCondition() for load previous.
+     *
+     * @return false - call for ban load previous.
+     */
+    protected boolean loadPreviousCondition() {
+        return true;
+    }
+
+    /**
+     * You should override this method to define the presentation of progress view load previous.
+     *
+     * @return view of header progress.
+     */
+    public View getHeaderProgress() {
+        return null;
+    }
+
+    /**
+     * The method shows or hides the progress indicator in header for load previous functional.
+     * Progress is shown only if there are no other headers.
+     *
+     * @param show true - show, false - hide header progress.
+     */
+    private void onChangeLoadPreviousProgressState(boolean show) {
+        if (show && headers.isEmpty()) {
+            headers.add(getHeaderProgress());
+            progressHeaderShown = true;
+            dispatchItemRangeInserted(0, 1);
+        } else if (!show && progressHeaderShown) {
+            boolean anchored = captureScrollAnchor(0);
+            removeHeaderAt(0);
+            if (anchored)
+                keepScrollAnchor();
+        }
+    }
+
+    /**
+     * Rows are going to be inserted or removed at the position: remember the first visible item and its offset,
+     * keepScrollAnchor() puts it back after the change. Inside batch it is remembered on commit.
+     * Headers are not anchors, rows are prepended after them.
+     *
+     * @param position of adapter view, before the change.
+     * @return false if the first visible item is above the position or RecyclerView is not supported.
+     */
+    private boolean captureScrollAnchor(int position) {
+        if (pendingBatch != null) {
+            scrollAnchorRequested = true;
+            return false;
+        }
+        RecyclerView recyclerView = attachedRecyclerView != null ? attachedRecyclerView
+                : scrollListener != null ? scrollListener.recyclerView : null;
+        if (recyclerView == null)
+            return false;
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+            if (linearLayoutManager.getOrientation() != LinearLayoutManager.VERTICAL || linearLayoutManager.getReverseLayout())
+                return false;
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            StaggeredGridLayoutManager staggeredLayoutManager = (StaggeredGridLayoutManager) layoutManager;
+            if (staggeredLayoutManager.getOrientation() != StaggeredGridLayoutManager.VERTICAL || staggeredLayoutManager.getReverseLayout())
+                return false;
+        } else {
+            return false;
+        }
+
+        View anchorView = null;
+        int anchor = RecyclerView.NO_POSITION;
+        for (int i = 0; i < layoutManager.getChildCount(); i++) {
+            View child = layoutManager.getChildAt(i);
+            int childPosition = recyclerView.getChildAdapterPosition(child);
+            if (childPosition == RecyclerView.NO_POSITION || childPosition < headers.size())
+                continue;
+            if (childPosition < position)
+                // Visible item is above the change, RecyclerView keeps it on its place
+                return false;
+            if (anchor == RecyclerView.NO_POSITION || childPosition < anchor) {
+                anchor = childPosition;
+                anchorView = child;
+            }
+        }
+        if (anchorView == null)
+            return false;
+        scrollAnchorRecyclerView = recyclerView;
+        scrollAnchorView = anchorView;
+        scrollAnchorPosition = anchor;
+        scrollAnchorOffset = layoutManager.getDecoratedTop(anchorView) - layoutManager.getPaddingTop();
+        return true;
+    }
+
+    /**
+     * RecyclerView was notified about the change, keep the item remembered by captureScrollAnchor(int)
+     * on its place. RecyclerView keeps it by itself when the change is below it, prepending at the top
+     * would move the visible rows down. Layout is requested only when the position of the item changed.
+     */
+    private void keepScrollAnchor() {
+        RecyclerView recyclerView = scrollAnchorRecyclerView;
+        View anchorView = scrollAnchorView;
+        scrollAnchorRecyclerView = null;
+        scrollAnchorView = null;
+        // Adapter positions of children already include the change, view offsets are not laid out yet
+        int anchor = recyclerView.getChildAdapterPosition(anchorView);
+        if (anchor == RecyclerView.NO_POSITION || anchor == scrollAnchorPosition)
+            return;
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager)
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(anchor, scrollAnchorOffset);
+        else if (layoutManager instanceof StaggeredGridLayoutManager)
+            ((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(anchor, scrollAnchorOffset);
+    }
+
+    /**
+     * Listener interface load previous.
+     */
+    public interface LoadPreviousListener {
+        void loadPrevious();
+    }
+
+
+    //
+    // Page loader
+    //
+
+
+    /**
+     * Call this method if you want to start track challenge load more with loading pages by page loader.
+     * Adapter requests pages one by one, shows progress footer, appends the result and sets all loaded state.
+     * Requests of the same page are merged, failed requests are retried with growing pause,
+     * clear() cancels requests and starts from the first page.
+     *
+     * @see TrueRecyclerAdapter#loadNextPage()
+     */
+    public void enableLoadMore(RecyclerView recyclerView, PageLoader<T> pageLoader) {
+        pageRequester.setLoader(pageLoader);
+        enableLoadMore(recyclerView, new LoadMoreListener() {
+            @Override
+            public void loadMore() {
+                pageRequester.requestNext();
+            }
+        });
+    }
+
+    /**
+     * Request the next page from the page loader, for example the first page after clear()
+     * or retry after the page failed to load.
+     */
+    public void loadNextPage() {
+        if (!pageRequester.hasLoader())
+            throw new IllegalStateException("Call enableLoadMore(RecyclerView, PageLoader) first");
+        if (!isLoading() && !isAllLoaded() && !snapshotStore.isRestoring()) {
+            loadingStartWithLoadMore();
+            pageRequester.requestNext();
+        }
+    }
+
+    /**
+     * @return number of the next page of the page loader.
+     */
+    public int getNextPage() {
+        return pageRequester.getNextPage();
+    }
+
+    /**
+     * Set retry policy of the page loader. Pause before retry is doubled on every attempt.
+     *
+     * @param maxRetries number of retries before giving up, 0 - no retry.
+     * @param delay      pause before the first retry in milliseconds.
+     */
+    public void setPageRetryPolicy(int maxRetries, long delay) {
+        pageRequester.setRetryPolicy(maxRetries, delay);
+    }
+
+    /**
+     * Called when the page loader failed to load the page after all retries.
+     * Scrolling does not request the page again until loadNextPage() is called.
+     */
+    protected void onPageLoadFailed(int page, Throwable error) {
+        Log.w("TrueRecyclerView", "Failed to load page " + page, error);
+    }
+
+    private void cancelPageRequests() {
+        if (!pageRequester.hasLoader())
+            return;
+        pageRequester.cancel();
+        if (isLoading())
+            loaded();
+    }
+
+    /**
+     * Appends the next page and puts pages evicted by the page window back.
+     */
+    private final PageRequester.Receiver<T> pageReceiver = new PageRequester.Receiver<T>() {
+        @Override
+        public void onNextPageLoaded(List<T> items, boolean lastPage) {
+            beginBatch();
+            loaded();
+            appendItems(items);
+            commit();
+            loadingFinish(lastPage);
+        }
+
+        @Override
+        public void onPageReloaded(int page, List<T> items) {
+            replacePage(page, items);
+        }
+
+        @Override
+        public void onPageFailed(int page, boolean next, Throwable error) {
+            requestedPages.clear(page);
+            if (next)
+                loadingError();
+            onPageLoadFailed(page, error);
+        }
+    };
+
+    private final PageRequester<T> pageRequester = new PageRequester<>(pageReceiver);
+
+
+    //
+    // Snapshot on disk
+    //
+
+
+    /**
+     * Save items, paging state and scroll position to the file.
+     * Items are copied on the calling thread and written on a background thread,
+     * the file is replaced only when writing is complete.
+     * Placeholders of pages evicted by the page window are not saved, these pages are
+     * loaded again after restore when they come close to the visible range.
+     *
+     * @param recyclerView source of the scroll position, can be null.
+     * @see TrueRecyclerAdapter#restoreSnapshot(File, ItemSerializer, RecyclerView)
+     */
+    public void saveSnapshot(File file, ItemSerializer<T> serializer, RecyclerView recyclerView) {
+        TrueSnapshot.State state = new TrueSnapshot.State();
+        state.allLoaded = allLoaded;
+        state.pageCount = pageCount;
+        state.nextPage = pageRequester.getNextPage();
+        state.evictedPages = (BitSet) evictedPages.clone();
+        snapshotStore.save(file, items, state, serializer, recyclerView, headers.size());
+    }
+
+    /**
+     * Replace items with the saved snapshot. The chunk of items at the saved scroll position is decoded
+     * right now and RecyclerView is scrolled to it, other chunks are decoded in background
+     * and added around it. Load more is paused until all chunks are added.
+     * If the snapshot was saved with evicted pages, set the page window before restore:
+     * these pages are restored as placeholders and requested again.
+     *
+     * @param recyclerView to restore scroll position, can be null.
+     * @return false if there is no valid snapshot in the file, the adapter is not changed.
+     */
+    public boolean restoreSnapshot(File file, ItemSerializer<T> serializer, RecyclerView recyclerView) {
+        return snapshotStore.restore(file, serializer, pageWindowListener != null, recyclerView, headers.size());
+    }
+
+    /**
+     * @param from position of the first item of the chunk in the saved items.
+     * @return the chunk with placeholders instead of items of evicted pages.
+     */
+    private List<T> withPlaceholders(List<T> chunk, int from) {
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i) == null)
+                chunk.set(i, pageWindowListener.createPlaceholder(from + i));
+        }
+        return chunk;
+    }
+
+    /**
+     * Puts restored chunks to the collection.
+     */
+    private final SnapshotStore.Receiver<T> snapshotReceiver = new SnapshotStore.Receiver<T>() {
+        @Override
+        public void onRestoreStarted(TrueSnapshot.State state, List<T> chunk, int from) {
+            beginBatch();
+            clearItems(state.allLoaded);
+            pageCount = state.pageCount;
+            pageRequester.setNextPage(state.nextPage);
+            appendItems(withPlaceholders(chunk, from));
+            commit();
+        }
+
+        @Override
+        public void onChunkRestored(List<T> chunk, int from, boolean before) {
+            if (before)
+                insertItems(0, withPlaceholders(chunk, from));
+            else
+                appendItems(withPlaceholders(chunk, from));
+        }
+
+        @Override
+        public void onRestoreFinished(TrueSnapshot.State state, boolean complete) {
+            // Positions of placeholders are final only when all chunks are added
+            if (complete)
+                evictedPages.or(state.evictedPages);
+        }
+    };
+
+    private final SnapshotStore<T> snapshotStore = new SnapshotStore<>(snapshotReceiver);
+
+
+    //
+    // Page window
+    //
+
+
+    /**
+     * Keep in memory only pages of items around the visible ones. Items of other pages are replaced
+     * with placeholders and requested again through the listener when they come close to the visible range.
+     * Page N contains items [N * pageCount, (N + 1) * pageCount) of the items collection,
+     * so items must be added by pages. Works with enableLoadMore(RecyclerView, LoadMoreListener).
+     *
+     * @param pagesAround number of pages kept before and after the visible pages.
+     * @param listener    creates placeholders and loads evicted pages, null - disable page window.
+     * @see TrueRecyclerAdapter#setPage(int, List)
+     */
+    public void setPageWindow(int pagesAround, PageWindowListener<T> listener) {
+        if (pagesAround < 0)
+            throw new IllegalArgumentException("pagesAround must be >= 0");
+        this.pagesAround = pagesAround;
+        this.pageWindowListener = listener;
+        resetPageWindow();
+    }
+
+    /**
+     * Put loaded items of the evicted page back to the collection.
+     *
+     * @param page  page number from PageWindowListener#loadPage(int).
+     * @param items page items, normally the same count as before eviction.
+     */
+    public void setPage(int page, List<T> items) {
+        onMutated(AdapterMetrics.Mutator.SET_PAGE);
+        replacePage(page, items);
+    }
+
+    private void replacePage(int page, List<T> items) {
+        int from = page * pageCount;
+        if (items == null || page < 0 || from >= this.items.size())
+            return;
+        int oldCount = Math.min(pageCount, this.items.size() - from);
+        int replaced = Math.min(oldCount, items.size());
+        beginBatch();
+        for (int i = 0; i < replaced; i++)
+            this.items.set(from + i, items.get(i));
+        dispatchItemRangeChanged(headers.size() + from, replaced, null);
+        if (items.size() > oldCount) {
+            this.items.addAll(from + oldCount, items.subList(oldCount, items.size()));
+            dispatchItemRangeInserted(headers.size() + from + oldCount, items.size() - oldCount);
+        } else if (items.size() < oldCount) {
+            this.items.subList(from + replaced, from + oldCount).clear();
+            dispatchItemRangeRemoved(headers.size() + from + replaced, oldCount - replaced);
+        }
+        indexReset();
+        evictedPages.clear(page);
+        requestedPages.clear(page);
+        commit();
+    }
+
+    /**
+     * @return true if items of the page are replaced with placeholders.
+     */
+    public boolean isPageEvicted(int page) {
+        return evictedPages.get(page);
+    }
+
+    /**
+     * @param position in items collection.
+     * @return page number of the item.
+     */
+    public int getPageOfItem(int position) {
+        return position / pageCount;
+    }
+
+    /**
+     * Evict pages far from the visible range and request evicted pages that came close to it.
+     */
+    private void syncPageWindow(int firstVisibleItem, int lastVisibleItem) {
+        if (firstVisibleItem == RecyclerView.NO_POSITION || items.isEmpty())
+            return;
+        int firstItem = Math.max(0, Math.min(items.size() - 1, getRelativeItemPosition(firstVisibleItem)));
+        int lastItem = Math.max(0, Math.min(items.size() - 1, getRelativeItemPosition(lastVisibleItem)));
+        int firstPage = Math.max(0, getPageOfItem(firstItem) - pagesAround);
+        int lastPage = getPageOfItem(lastItem) + pagesAround;
+        if (firstPage == keptFirstPage && lastPage == keptLastPage)
+            return;
+        keptFirstPage = firstPage;
+        keptLastPage = lastPage;
+
+        int pages = (items.size() + pageCount - 1) / pageCount;
+        beginBatch();
+        for (int page = evictedPages.nextClearBit(0); page < Math.min(firstPage, pages); page = evictedPages.nextClearBit(page + 1))
+            evictPage(page);
+        for (int page = evictedPages.nextClearBit(lastPage + 1); page < pages; page = evictedPages.nextClearBit(page + 1))
+            evictPage(page);
+        commit();
+        for (int page = evictedPages.nextSetBit(firstPage); page >= 0 && page <= lastPage; page = evictedPages.nextSetBit(page + 1)) {
+            if (!requestedPages.get(page)) {
+                requestedPages.set(page);
+                if (pageRequester.hasLoader())
+                    pageRequester.request(page);
+                else
+                    pageWindowListener.loadPage(page);
+            }
+        }
+    }
+
+    private void resetPageWindow() {
+        evictedPages.clear();
+        requestedPages.clear();
+        keptFirstPage = keptLastPage = POSITION_NONE;
+    }
+
+    private void evictPage(int page) {
+        int from = page * pageCount;
+        int to = Math.min(items.size(), from + pageCount);
+        for (int i = from; i < to; i++)
+            items.set(i, pageWindowListener.createPlaceholder(i));
+        indexReset();
+        evictedPages.set(page);
+        dispatchItemRangeChanged(headers.size() + from, to - from, null);
+    }
+
+    /**
+     * Compares old and new versions of replaced item.
+     */
+    public interface ChangeDetector<T> {
+
+        /**
+         * @return false if view shows the same content, it is not rebound.
+         */
+        boolean isChanged(T oldModel, T newModel);
+
+        /**
+         * @return description of the change for partial rebind, null for full rebind.
+         */
+        Object getChangePayload(T oldModel, T newModel);
+    }
+
+    /**
+     * Listener interface of the page window.
+     */
+    public interface PageWindowListener<T> {
+
+        /**
+         * @param position in items collection.
+         * @return cheap model shown instead of evicted item, may be one shared instance.
+         */
+        T createPlaceholder(int position);
+
+        /**
+         * Load items of the evicted page and pass them to TrueRecyclerAdapter#setPage(int, List).
+         * Not called if the adapter uses PageLoader, the page is requested from it.
+         */
+        void loadPage(int page);
+    }
+
+
+    //
+    // State of data
+    //
+
+
+    /**
+     * Empty view is shown in EMPTY state and hidden in other states.
+     * EmptyView of https://github.com/jaksab/EmptyView is passed through a callback that calls
+     * its empty() and reset().
+     *
+     * @param emptyView null - remove empty view.
+     * @see TrueRecyclerAdapter#setStateRenderer(StateRenderer)
+     */
+    public void setEmptyView(EmptyViewCallback emptyView) {
+        setStateRenderer(emptyView != null ? new EmptyViewStateRenderer(emptyView) : null);
+    }
+
+    /**
+     * Set renderer of loading, empty, error and content states.
+     * Renderer receives current state right away and then every change of it.
+     *
+     * @param stateRenderer null - remove renderer.
+     */
+    public void setStateRenderer(StateRenderer stateRenderer) {
+        this.stateRenderer = stateRenderer;
+        this.renderedState = null;
+        emptyViewSyncState();
+    }
+
+    /**
+     * @return current state of data.
+     */
+    public StateRenderer.State getState() {
+        if (!items.isEmpty())
+            return StateRenderer.State.CONTENT;
+        else if (isLoading)
+            return StateRenderer.State.LOADING;
+        else if (error)
+            return StateRenderer.State.ERROR;
+        else if (allLoaded)
+            return StateRenderer.State.EMPTY;
         else
-            throw new NullPointerException("Use only EmptyViewAdapterInterface instance or ready-made solution: https://github.com/jaksab/EmptyView");
+            return StateRenderer.State.CONTENT;
+    }
+
+    /**
+     * Inform the adapter that loading failed. Progress footer is hidden, the error state is shown
+     * while items collection is empty and is reset by the next loading.
+     * Scrolling does not start load more until then.
+     */
+    public void loadingError() {
+        loaded();
+        this.error = true;
+        emptyViewSyncState();
     }
 
+    /**
+     * Pass state to the renderer if it was changed. Called after every change of items
+     * and loading state, inside of batch the state is passed on commit.
+     * Overriding methods must call super to keep the renderer updated.
+     */
     protected void emptyViewSyncState() {
-        try {
-            if (this.emptyView != null && allLoaded && this.isEmpty()) {
-                emptyView.getClass().getDeclaredMethod("empty").invoke(emptyView);
-            } else if (this.emptyView != null) {
-                emptyView.getClass().getDeclaredMethod("reset").invoke(emptyView);
-            }
-        } catch (Exception ignored) {
-            Log.e("TrueRecyclerView", "Add dependency to EmptyView");
+        if (stateRenderer == null || pendingBatch != null)
+            return;
+        StateRenderer.State state = getState();
+        if (state != renderedState) {
+            renderedState = state;
+            stateRenderer.render(state);
+        }
+    }
+
+    /**
+     * Shows empty view in EMPTY state.
+     */
+    private static class EmptyViewStateRenderer implements StateRenderer {
+        private final EmptyViewCallback emptyView;
+        private Boolean shown;
+
+        EmptyViewStateRenderer(EmptyViewCallback emptyView) {
+            this.emptyView = emptyView;
+        }
+
+        @Override
+        public void render(State state) {
+            boolean show = state == State.EMPTY;
+            if (shown != null && shown == show)
+                return;
+            shown = show;
+            if (show)
+                emptyView.empty();
+            else
+                emptyView.reset();
         }
     }
-}
\ No newline at end of file
+}
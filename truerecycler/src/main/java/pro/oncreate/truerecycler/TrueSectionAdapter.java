@@ -0,0 +1,322 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Adapter of sections, every section has optional header, items and optional footer.
+ * Adapter position is mapped to section by SectionIndex in O(log n) of sections count.
+ *
+ * @param <S> model of section header
+ * @param <T> model of item
+ * @param <F> model of section footer
+ */
+
+@SuppressWarnings("unused,WeakerAccess")
+public abstract class TrueSectionAdapter<S, T, F> extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    /**
+     * View type of section headers.
+     */
+    public static final int TYPE_SECTION_HEADER = Integer.MIN_VALUE;
+
+    /**
+     * View type of section footers.
+     */
+    public static final int TYPE_SECTION_FOOTER = Integer.MIN_VALUE + 1;
+
+    private final List<Section<S, T, F>> sections = new ArrayList<>();
+
+    /**
+     * Rows count of every section.
+     */
+    private final SectionIndex index = new SectionIndex();
+
+    private static final class Section<S, T, F> {
+        final S header;
+        final List<T> items;
+        final F footer;
+
+        Section(S header, List<T> items, F footer) {
+            this.header = header;
+            this.items = items;
+            this.footer = footer;
+        }
+
+        int headerRows() {
+            return header != null ? 1 : 0;
+        }
+
+        int rows() {
+            return headerRows() + items.size() + (footer != null ? 1 : 0);
+        }
+    }
+
+
+    //
+    // Sections
+    //
+
+
+    /**
+     * Add section to the end.
+     *
+     * @param header model of section header, null - without header.
+     * @return index of the section.
+     */
+    public int addSection(S header, List<T> items) {
+        return addSection(header, items, null);
+    }
+
+    /**
+     * Add section to the end.
+     *
+     * @param header model of section header, null - without header.
+     * @param footer model of section footer, null - without footer.
+     * @return index of the section.
+     */
+    public int addSection(S header, List<T> items, F footer) {
+        insertSection(sections.size(), header, items, footer);
+        return sections.size() - 1;
+    }
+
+    /**
+     * Insert section before the section with the index.
+     */
+    public void insertSection(int section, S header, List<T> items, F footer) {
+        Section<S, T, F> inserted = new Section<>(header,
+                items != null ? new ArrayList<>(items) : new ArrayList<T>(), footer);
+        int start = section < sections.size() ? index.getStart(section) : index.getTotal();
+        sections.add(section, inserted);
+        index.insert(section, inserted.rows());
+        notifyItemRangeInserted(start, inserted.rows());
+    }
+
+    public void removeSection(int section) {
+        int start = index.getStart(section);
+        int rows = index.getSize(section);
+        sections.remove(section);
+        index.remove(section);
+        notifyItemRangeRemoved(start, rows);
+    }
+
+    /**
+     * Remove all sections.
+     */
+    public void clear() {
+        int rows = index.getTotal();
+        sections.clear();
+        index.clear();
+        notifyItemRangeRemoved(0, rows);
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * @return model of section header, null if the section has no header.
+     */
+    public S getSectionHeader(int section) {
+        return sections.get(section).header;
+    }
+
+    /**
+     * @return model of section footer, null if the section has no footer.
+     */
+    public F getSectionFooter(int section) {
+        return sections.get(section).footer;
+    }
+
+    /**
+     * @return unmodifiable items of the section.
+     */
+    public List<T> getSectionItems(int section) {
+        return Collections.unmodifiableList(sections.get(section).items);
+    }
+
+
+    //
+    // Items of sections
+    //
+
+
+    public T getItem(int section, int offset) {
+        return sections.get(section).items.get(offset);
+    }
+
+    public void addItem(int section, T item) {
+        insertItem(section, sections.get(section).items.size(), item);
+    }
+
+    public void insertItem(int section, int offset, T item) {
+        Section<S, T, F> target = sections.get(section);
+        target.items.add(offset, item);
+        index.setSize(section, target.rows());
+        notifyItemInserted(getAdapterPosition(section, offset));
+    }
+
+    public void addItems(int section, List<T> items) {
+        Section<S, T, F> target = sections.get(section);
+        int offset = target.items.size();
+        target.items.addAll(items);
+        index.setSize(section, target.rows());
+        notifyItemRangeInserted(getAdapterPosition(section, offset), items.size());
+    }
+
+    public void removeItem(int section, int offset) {
+        int position = getAdapterPosition(section, offset);
+        Section<S, T, F> target = sections.get(section);
+        target.items.remove(offset);
+        index.setSize(section, target.rows());
+        notifyItemRemoved(position);
+    }
+
+    /**
+     * Replace items of the section. In the common part only rows with other instances
+     * are notified as changed, the rest is notified as inserted or removed.
+     */
+    public void setSectionItems(int section, List<T> items) {
+        Section<S, T, F> target = sections.get(section);
+        int first = getAdapterPosition(section, 0);
+        List<T> oldItems = new ArrayList<>(target.items);
+        int oldSize = oldItems.size();
+        target.items.clear();
+        target.items.addAll(items);
+        index.setSize(section, target.rows());
+        int common = Math.min(oldSize, items.size());
+        for (int i = 0; i < common; i++) {
+            if (oldItems.get(i) == items.get(i))
+                continue;
+            int start = i;
+            while (i + 1 < common && oldItems.get(i + 1) != items.get(i + 1))
+                i++;
+            notifyItemRangeChanged(first + start, i - start + 1);
+        }
+        if (items.size() > oldSize)
+            notifyItemRangeInserted(first + common, items.size() - oldSize);
+        else if (items.size() < oldSize)
+            notifyItemRangeRemoved(first + common, oldSize - items.size());
+    }
+
+
+    //
+    // Position mapping
+    //
+
+
+    /**
+     * @param position of adapter view.
+     * @return index of the section containing the position.
+     */
+    public int getSectionOfPosition(int position) {
+        return index.findSection(position);
+    }
+
+    /**
+     * @param position of adapter view.
+     * @return position in items of the section, RecyclerView.NO_POSITION for header and footer.
+     */
+    public int getOffsetInSection(int position) {
+        int section = index.findSection(position);
+        int offset = position - index.getStart(section) - sections.get(section).headerRows();
+        return offset >= 0 && offset < sections.get(section).items.size() ? offset : RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * @param offset position in items of the section.
+     * @return position of adapter view.
+     */
+    public int getAdapterPosition(int section, int offset) {
+        return index.getStart(section) + sections.get(section).headerRows() + offset;
+    }
+
+    /**
+     * @return position of the section header view, RecyclerView.NO_POSITION if the section has no header.
+     */
+    public int getSectionHeaderPosition(int section) {
+        return sections.get(section).header != null ? index.getStart(section) : RecyclerView.NO_POSITION;
+    }
+
+
+    //
+    // Adapter
+    //
+
+
+    @Override
+    public int getItemCount() {
+        return index.getTotal();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        int section = index.findSection(position);
+        Section<S, T, F> target = sections.get(section);
+        int offset = position - index.getStart(section) - target.headerRows();
+        if (offset < 0)
+            return TYPE_SECTION_HEADER;
+        if (offset >= target.items.size())
+            return TYPE_SECTION_FOOTER;
+        int type = getItemType(section, offset, target.items.get(offset));
+        if (type == TYPE_SECTION_HEADER || type == TYPE_SECTION_FOOTER)
+            throw new IllegalStateException("View type " + type + " is reserved for section headers and footers");
+        return type;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int type) {
+        if (type == TYPE_SECTION_HEADER)
+            return onCreateSectionHeaderHolder(parent);
+        if (type == TYPE_SECTION_FOOTER)
+            return onCreateSectionFooterHolder(parent);
+        return onCreateItemHolder(parent, type);
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        int section = index.findSection(position);
+        Section<S, T, F> target = sections.get(section);
+        int offset = position - index.getStart(section) - target.headerRows();
+        if (offset < 0)
+            onBindSectionHeaderHolder(holder, section, target.header);
+        else if (offset >= target.items.size())
+            onBindSectionFooterHolder(holder, section, target.footer);
+        else
+            onBindItemHolder(holder, section, offset, target.items.get(offset));
+    }
+
+    /**
+     * By default method return 0.
+     * You must override this method if your items may be presented in different forms.
+     *
+     * @param offset position in items of the section.
+     * @return view type of the item, not TYPE_SECTION_HEADER or TYPE_SECTION_FOOTER.
+     */
+    protected int getItemType(int section, int offset, T item) {
+        return 0;
+    }
+
+    protected abstract RecyclerView.ViewHolder onCreateItemHolder(ViewGroup parent, int type);
+
+    protected abstract RecyclerView.ViewHolder onCreateSectionHeaderHolder(ViewGroup parent);
+
+    protected abstract RecyclerView.ViewHolder onCreateSectionFooterHolder(ViewGroup parent);
+
+    public abstract void onBindItemHolder(RecyclerView.ViewHolder holder, int section, int offset, T model);
+
+    public void onBindSectionHeaderHolder(RecyclerView.ViewHolder holder, int section, S header) {
+
+    }
+
+    public void onBindSectionFooterHolder(RecyclerView.ViewHolder holder, int section, F footer) {
+
+    }
+}
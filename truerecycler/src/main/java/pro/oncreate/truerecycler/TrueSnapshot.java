@@ -0,0 +1,224 @@
+package pro.oncreate.truerecycler;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * File of adapter items and paging state. Items are written in chunks with a table of chunk offsets,
+ * so the reader maps the file and decodes any chunk without decoding the previous ones.
+ * <p>
+ * Items of pages evicted by the page window are not written, the reader returns null for them.
+ * <p>
+ * Format: magic, version, item count, chunk size, all loaded, page count, next page,
+ * anchor position, anchor offset, evicted pages count, evicted pages, chunk count,
+ * chunk offsets (chunk count + 1 longs), chunks.
+ */
+
+class TrueSnapshot {
+
+    private static final int MAGIC = 0x54525331;
+    private static final int VERSION = 2;
+
+    static final int DEFAULT_CHUNK_SIZE = 64;
+
+    /**
+     * Size of fields before chunk offsets without evicted pages.
+     */
+    private static final int HEADER_SIZE = 10 * 4 + 1;
+
+    /**
+     * Paging state and scroll position saved with items.
+     */
+    static class State {
+        boolean allLoaded;
+        int pageCount;
+        int nextPage;
+        /**
+         * Position in items collection of the first visible item.
+         */
+        int anchorPosition;
+        /**
+         * Offset of the anchor view from the top of RecyclerView.
+         */
+        int anchorOffset;
+        /**
+         * Pages replaced with placeholders, their items are not saved.
+         */
+        BitSet evictedPages = new BitSet();
+
+        boolean isEvicted(int position) {
+            return !evictedPages.isEmpty() && pageCount > 0 && evictedPages.get(position / pageCount);
+        }
+    }
+
+    /**
+     * Write to a temporary file and replace the file, so a killed process never leaves a broken snapshot.
+     */
+    static <T> void write(File file, List<T> items, int chunkSize, State state,
+                          ItemSerializer<T> serializer) throws IOException {
+        int chunkCount = (items.size() + chunkSize - 1) / chunkSize;
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        DataOutputStream chunksOut = new DataOutputStream(chunks);
+        long[] offsets = new long[chunkCount + 1];
+        long headerSize = HEADER_SIZE + 4L * state.evictedPages.cardinality() + 8L * offsets.length;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            offsets[chunk] = headerSize + chunksOut.size();
+            int to = Math.min(items.size(), (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < to; i++) {
+                if (!state.isEvicted(i))
+                    serializer.write(items.get(i), chunksOut);
+            }
+        }
+        chunksOut.flush();
+        offsets[chunkCount] = headerSize + chunks.size();
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(items.size());
+            out.writeInt(chunkSize);
+            out.writeBoolean(state.allLoaded);
+            out.writeInt(state.pageCount);
+            out.writeInt(state.nextPage);
+            out.writeInt(state.anchorPosition);
+            out.writeInt(state.anchorOffset);
+            out.writeInt(state.evictedPages.cardinality());
+            for (int page = state.evictedPages.nextSetBit(0); page >= 0; page = state.evictedPages.nextSetBit(page + 1))
+                out.writeInt(page);
+            out.writeInt(chunkCount);
+            for (long offset : offsets)
+                out.writeLong(offset);
+            chunks.writeTo(out);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    /**
+     * Mapped snapshot file, chunks are decoded on demand.
+     */
+    static class Reader<T> implements Closeable {
+
+        final int itemCount;
+        final int chunkSize;
+        final State state = new State();
+
+        private final RandomAccessFile file;
+        private final MappedByteBuffer buffer;
+        private final long[] offsets;
+        private final ItemSerializer<T> serializer;
+
+        /**
+         * @throws IOException if the file is missing or is not a snapshot.
+         */
+        Reader(File file, ItemSerializer<T> serializer) throws IOException {
+            this.file = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = this.file.getChannel();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                    throw new IOException("Not a snapshot: " + file);
+                itemCount = buffer.getInt();
+                chunkSize = buffer.getInt();
+                state.allLoaded = buffer.get() != 0;
+                state.pageCount = buffer.getInt();
+                state.nextPage = buffer.getInt();
+                state.anchorPosition = buffer.getInt();
+                state.anchorOffset = buffer.getInt();
+                int evictedCount = buffer.getInt();
+                if (evictedCount < 0 || evictedCount > buffer.remaining() / 4)
+                    throw new IOException("Broken snapshot: " + file);
+                for (int i = 0; i < evictedCount; i++)
+                    state.evictedPages.set(buffer.getInt());
+                int chunkCount = buffer.getInt();
+                if (chunkSize <= 0 || chunkCount != (itemCount + chunkSize - 1) / chunkSize)
+                    throw new IOException("Broken snapshot: " + file);
+                offsets = new long[chunkCount + 1];
+                for (int i = 0; i < offsets.length; i++)
+                    offsets[i] = buffer.getLong();
+                if (offsets[chunkCount] != buffer.capacity())
+                    throw new IOException("Broken snapshot: " + file);
+            } catch (IOException | RuntimeException e) {
+                this.file.close();
+                throw e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+            this.serializer = serializer;
+        }
+
+        int getChunkCount() {
+            return offsets.length - 1;
+        }
+
+        int getChunkOf(int position) {
+            return Math.max(0, Math.min(getChunkCount() - 1, position / chunkSize));
+        }
+
+        /**
+         * Can be called from any thread, each call reads its own view of the mapped file.
+         *
+         * @return items of the chunk, null for items of evicted pages.
+         */
+        List<T> readChunk(int chunk) throws IOException {
+            ByteBuffer data = buffer.duplicate();
+            data.limit((int) offsets[chunk + 1]);
+            data.position((int) offsets[chunk]);
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(data));
+            int count = Math.min(itemCount, (chunk + 1) * chunkSize) - chunk * chunkSize;
+            List<T> items = new ArrayList<>(count);
+            int from = chunk * chunkSize;
+            for (int i = 0; i < count; i++)
+                items.add(state.isEvicted(from + i) ? null : serializer.read(in));
+            return items;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
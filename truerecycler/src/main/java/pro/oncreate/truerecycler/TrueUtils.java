@@ -1,8 +1,11 @@
 package pro.oncreate.truerecycler;
 
+import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.util.List;
+
 /**
  * Created by Andrii Konovalenko, 2014-2017 years.
  * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
@@ -16,4 +19,65 @@ class TrueUtils {
                 oldParent.removeView(v);
         }
     }
+
+    /**
+     * Detach header or footer view from previous holder and give it layout params of RecyclerView.
+     */
+    static void prepareHeaderOrFooterView(View v) {
+        removeParent(v);
+        if (!(v.getLayoutParams() instanceof RecyclerView.LayoutParams))
+            v.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT));
+    }
+
+    /**
+     * @return true if both lists contain the same instances in the same order.
+     */
+    static boolean sameItems(List<?> a, List<?> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remember that the holder is put to RecycledViewPool, the mark lives with the view.
+     */
+    static void markPooled(RecyclerView.ViewHolder holder) {
+        holder.itemView.setTag(R.id.true_recycler_pooled, Boolean.TRUE);
+    }
+
+    /**
+     * @return true if the holder was marked by markPooled(ViewHolder), the mark is cleared.
+     */
+    static boolean takePooled(RecyclerView.ViewHolder holder) {
+        if (holder.itemView.getTag(R.id.true_recycler_pooled) == null)
+            return false;
+        holder.itemView.setTag(R.id.true_recycler_pooled, null);
+        return true;
+    }
+
+    /**
+     * @return the least of positions of StaggeredGridLayoutManager spans, RecyclerView.NO_POSITION if none.
+     */
+    static int min(int[] positions) {
+        int min = RecyclerView.NO_POSITION;
+        for (int position : positions) {
+            if (position != RecyclerView.NO_POSITION && (min == RecyclerView.NO_POSITION || position < min))
+                min = position;
+        }
+        return min;
+    }
+
+    static int max(int[] positions) {
+        int max = RecyclerView.NO_POSITION;
+        for (int position : positions) {
+            if (position > max)
+                max = position;
+        }
+        return max;
+    }
 }
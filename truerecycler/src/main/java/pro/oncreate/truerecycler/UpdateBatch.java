@@ -0,0 +1,145 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Records list updates and merges adjacent ranges of the same kind,
+ * so the recorded sequence can be dispatched with the smallest number of notifications.
+ * Updates are kept in order, positions of each update are relative to the state after previous ones.
+ */
+
+class UpdateBatch implements ListUpdateCallback {
+
+    private static final int INSERT = 1;
+    private static final int REMOVE = 2;
+    private static final int CHANGE = 3;
+    private static final int MOVE = 4;
+
+    private static final class Update {
+        final int type;
+        int position;
+        // Target position for MOVE
+        int count;
+        final Object payload;
+
+        Update(int type, int position, int count, Object payload) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+            this.payload = payload;
+        }
+    }
+
+    private final List<Update> updates = new ArrayList<>();
+
+    private boolean dataSetChanged;
+
+    @Override
+    public void onInserted(int position, int count) {
+        if (dataSetChanged || count <= 0)
+            return;
+        Update last = last();
+        if (last != null && last.type == INSERT
+                && position >= last.position && position <= last.position + last.count) {
+            last.count += count;
+            return;
+        }
+        updates.add(new Update(INSERT, position, count, null));
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        if (dataSetChanged || count <= 0)
+            return;
+        Update last = last();
+        if (last != null && last.type == REMOVE) {
+            if (position == last.position) {
+                last.count += count;
+                return;
+            } else if (position + count == last.position) {
+                last.position = position;
+                last.count += count;
+                return;
+            }
+        } else if (last != null && last.type == INSERT
+                && position >= last.position && position + count <= last.position + last.count) {
+            // Removing just inserted items, they were never shown
+            last.count -= count;
+            if (last.count == 0)
+                updates.remove(updates.size() - 1);
+            return;
+        }
+        updates.add(new Update(REMOVE, position, count, null));
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        if (dataSetChanged || fromPosition == toPosition)
+            return;
+        updates.add(new Update(MOVE, fromPosition, toPosition, null));
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        if (dataSetChanged || count <= 0)
+            return;
+        Update last = last();
+        if (last != null && last.type == INSERT
+                && position >= last.position && position + count <= last.position + last.count) {
+            // Just inserted items will be bound anyway
+            return;
+        }
+        if (last != null && last.type == CHANGE && last.payload == payload
+                && position <= last.position + last.count && position + count >= last.position) {
+            int end = Math.max(last.position + last.count, position + count);
+            last.position = Math.min(last.position, position);
+            last.count = end - last.position;
+            return;
+        }
+        updates.add(new Update(CHANGE, position, count, payload));
+    }
+
+    /**
+     * Whole data set was changed, all recorded and next updates are replaced with one notification.
+     */
+    void onDataSetChanged() {
+        dataSetChanged = true;
+        updates.clear();
+    }
+
+    boolean isDataSetChanged() {
+        return dataSetChanged;
+    }
+
+    /**
+     * Dispatch recorded updates in order. The data set change has to be dispatched by caller.
+     */
+    void dispatchTo(ListUpdateCallback callback) {
+        for (Update update : updates) {
+            switch (update.type) {
+                case INSERT:
+                    callback.onInserted(update.position, update.count);
+                    break;
+                case REMOVE:
+                    callback.onRemoved(update.position, update.count);
+                    break;
+                case CHANGE:
+                    callback.onChanged(update.position, update.count, update.payload);
+                    break;
+                case MOVE:
+                    callback.onMoved(update.position, update.count);
+                    break;
+            }
+        }
+    }
+
+    private Update last() {
+        return updates.isEmpty() ? null : updates.get(updates.size() - 1);
+    }
+}
@@ -0,0 +1,178 @@
+package pro.oncreate.truerecycler;
+
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by Andrii Konovalenko, 2014-2017 years.
+ * Copyright © 2017 [Andrii Konovalenko]. All Rights Reserved.
+ * <p>
+ * Inflates registered layouts on a background executor ahead of demand
+ * and keeps the views in a bounded queue per layout.
+ * Views are inflated without attaching to the parent, like AsyncLayoutInflater does,
+ * so layouts with views that need a Looper in constructor must not be registered.
+ */
+
+class ViewPreInflater {
+
+    private static ExecutorService defaultExecutor;
+
+    private final SparseArray<LayoutQueue> queues = new SparseArray<>();
+
+    private Executor executor;
+
+    private ViewGroup parent;
+
+    /**
+     * Incremented on every attach and detach, views inflated for the previous parent are dropped.
+     */
+    private volatile int generation;
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param capacity max number of views kept for the layout, 0 to stop pre-inflation of the layout.
+     */
+    void register(int layout, int capacity) {
+        LayoutQueue queue = queues.get(layout);
+        if (capacity <= 0) {
+            if (queue != null) {
+                queue.capacity = 0;
+                queue.clear();
+                queues.remove(layout);
+            }
+            return;
+        }
+        if (queue == null) {
+            queue = new LayoutQueue(layout);
+            queues.put(layout, queue);
+        }
+        queue.capacity = capacity;
+        fill(queue);
+    }
+
+    boolean isRegistered(int layout) {
+        return queues.get(layout) != null;
+    }
+
+    void attach(ViewGroup parent) {
+        if (this.parent == parent)
+            return;
+        detach();
+        this.parent = parent;
+        for (int i = 0; i < queues.size(); i++)
+            fill(queues.valueAt(i));
+    }
+
+    void detach() {
+        generation++;
+        parent = null;
+        for (int i = 0; i < queues.size(); i++)
+            queues.valueAt(i).clear();
+    }
+
+    ViewGroup getParent() {
+        return parent;
+    }
+
+    /**
+     * Call only from the main thread.
+     *
+     * @return pre-inflated view of the layout, or the view inflated right now if the queue is empty.
+     */
+    View take(ViewGroup parent, int layout) {
+        LayoutQueue queue = queues.get(layout);
+        if (queue == null || parent != this.parent)
+            return inflate(parent, layout);
+        View view = queue.views.poll();
+        if (view != null)
+            queue.count.decrementAndGet();
+        else
+            view = inflate(parent, layout);
+        fill(queue);
+        return view;
+    }
+
+    private void fill(final LayoutQueue queue) {
+        if (parent == null || queue.failed || queue.count.get() >= queue.capacity
+                || !queue.running.compareAndSet(false, true))
+            return;
+        final ViewGroup runParent = parent;
+        final int runGeneration = generation;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                do {
+                    while (runGeneration == generation && queue.count.get() < queue.capacity) {
+                        View view;
+                        try {
+                            view = inflate(runParent, queue.layout);
+                        } catch (RuntimeException e) {
+                            // Layout can't be inflated off the main thread, inflate it on demand only
+                            queue.failed = true;
+                            break;
+                        }
+                        if (runGeneration != generation)
+                            break;
+                        queue.views.offer(view);
+                        queue.count.incrementAndGet();
+                    }
+                    queue.running.set(false);
+                    // Recheck, take() could skip the fill while this task was finishing
+                } while (runGeneration == generation && !queue.failed
+                        && queue.count.get() < queue.capacity && queue.running.compareAndSet(false, true));
+            }
+        });
+    }
+
+    private static View inflate(ViewGroup parent, int layout) {
+        return LayoutInflater.from(parent.getContext()).inflate(layout, parent, false);
+    }
+
+    private Executor getExecutor() {
+        if (executor != null)
+            return executor;
+        synchronized (ViewPreInflater.class) {
+            if (defaultExecutor == null)
+                defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "TrueRecyclerInflate");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            return defaultExecutor;
+        }
+    }
+
+    private static class LayoutQueue {
+        final int layout;
+        final ConcurrentLinkedQueue<View> views = new ConcurrentLinkedQueue<>();
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicBoolean running = new AtomicBoolean();
+        volatile int capacity;
+        volatile boolean failed;
+
+        LayoutQueue(int layout) {
+            this.layout = layout;
+        }
+
+        void clear() {
+            views.clear();
+            count.set(0);
+        }
+    }
+}
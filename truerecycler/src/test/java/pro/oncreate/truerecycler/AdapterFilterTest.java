@@ -0,0 +1,101 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Changes of the collection while filter is applied or running are kept in all items.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AdapterFilterTest {
+
+    @Test
+    public void mutationsWhileFiltered_areKeptAfterClear() throws Exception {
+        TestAdapter adapter = newAdapter("a1", "b1", "a2", "b2");
+        adapter.filter("a");
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("a1", "a2"), adapter.getItems());
+
+        adapter.add("a3");
+        adapter.add("b3");
+        adapter.add(0, "a0");
+        adapter.remove("a1");
+        adapter.replace("a2", "a4");
+        assertEquals(Arrays.asList("a0", "a4", "a3"), adapter.getItems());
+
+        adapter.clearFilter();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("a0", "b1", "a4", "b2", "a3", "b3"), adapter.getItems());
+    }
+
+    @Test
+    public void mutationsWhileFiltering_areFilteredAgain() throws Exception {
+        TestAdapter adapter = newAdapter("a1", "b1");
+        adapter.filter("a");
+        adapter.add("a2");
+        adapter.add("b2");
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(Arrays.asList("a1", "a2"), adapter.getItems());
+        assertEquals(Arrays.asList("a1", "b1", "a2", "b2"), adapter.getUnfilteredItems());
+    }
+
+    @Test
+    public void setWhileFirstQueryRuns_keepsQuery() throws Exception {
+        TestAdapter adapter = newAdapter("a1", "b1");
+        adapter.filter("b");
+        adapter.set(Arrays.asList("a2", "b2", "b3"));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals("b", adapter.getFilterQuery());
+        assertEquals(Arrays.asList("b2", "b3"), adapter.getItems());
+        assertEquals(3, adapter.getUnfilteredItems().size());
+    }
+
+    @Test
+    public void sortedMode_addsToSortedPositionOfAllItems() throws Exception {
+        TestAdapter adapter = newAdapter("a1", "b1", "a3");
+        adapter.setComparator(String.CASE_INSENSITIVE_ORDER);
+        adapter.filter("a");
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        adapter.add("a2");
+        adapter.add("b0");
+        assertEquals(Arrays.asList("a1", "a2", "a3"), adapter.getItems());
+        adapter.clearFilter();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("a1", "a2", "a3", "b0", "b1"), adapter.getItems());
+    }
+
+    private static TestAdapter newAdapter(String... items) {
+        TestAdapter adapter = new TestAdapter();
+        adapter.addAll(Arrays.asList(items));
+        adapter.setFilter(new ItemFilter<String>() {
+            @Override
+            public boolean matches(String item, CharSequence query) {
+                return item.startsWith(query.toString());
+            }
+        });
+        adapter.setFilterExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        return adapter;
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<String, RecyclerView.ViewHolder> {
+    }
+}
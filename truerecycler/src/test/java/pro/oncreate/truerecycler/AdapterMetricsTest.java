@@ -0,0 +1,76 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Metrics count every public mutator call once and recycle hits only for holders from the pool.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AdapterMetricsTest {
+
+    private static final AdapterMetrics.Listener LISTENER = new AdapterMetrics.Listener() {
+        @Override
+        public void onMetrics(AdapterMetrics metrics) {
+
+        }
+    };
+
+    @Test
+    public void mutators_areCountedOncePerCall() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.enableMetrics(LISTENER);
+        adapter.add("a");
+        adapter.add(5, "b");
+        adapter.addAll(Arrays.<Object>asList("c", "d"));
+        adapter.addAll(10, Arrays.<Object>asList("e"));
+        adapter.remove("a");
+        adapter.replace("b", "f");
+        adapter.clear();
+
+        AdapterMetrics metrics = adapter.getMetrics();
+        assertEquals(1, metrics.getMutatorCalls(AdapterMetrics.Mutator.ADD));
+        assertEquals(1, metrics.getMutatorCalls(AdapterMetrics.Mutator.INSERT));
+        assertEquals(1, metrics.getMutatorCalls(AdapterMetrics.Mutator.ADD_ALL));
+        assertEquals(1, metrics.getMutatorCalls(AdapterMetrics.Mutator.INSERT_ALL));
+        assertEquals(1, metrics.getMutatorCalls(AdapterMetrics.Mutator.REMOVE));
+        assertEquals(1, metrics.getMutatorCalls(AdapterMetrics.Mutator.REPLACE));
+        assertEquals(1, metrics.getMutatorCalls(AdapterMetrics.Mutator.CLEAR));
+        assertEquals(0, metrics.getMutatorCalls(AdapterMetrics.Mutator.SET));
+    }
+
+    @Test
+    public void recycleHits_countOnlyHoldersFromPool() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.enableMetrics(LISTENER);
+        adapter.add("a");
+        RecyclerView parent = new RecyclerView(RuntimeEnvironment.application);
+        int type = adapter.getItemViewType(0);
+        RecyclerView.ViewHolder holder = adapter.createViewHolder(parent, type);
+
+        // New holder and rebind of the shown holder
+        adapter.onBindViewHolder(holder, 0, Collections.emptyList());
+        adapter.onBindViewHolder(holder, 0, Collections.emptyList());
+        assertEquals(0, adapter.getMetrics().getTypeMetrics(type).getRecycleHits());
+
+        adapter.onViewRecycled(holder);
+        adapter.onBindViewHolder(holder, 0, Collections.emptyList());
+        adapter.onBindViewHolder(holder, 0, Collections.emptyList());
+        assertEquals(1, adapter.getMetrics().getTypeMetrics(type).getRecycleHits());
+        assertEquals(4, adapter.getMetrics().getTypeMetrics(type).getBinds().getCount());
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<Object, RecyclerView.ViewHolder> {
+    }
+}
@@ -0,0 +1,146 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Snapshot of the adapter with pages evicted by the page window restores them as placeholders
+ * and loads them again.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AdapterSnapshotTest {
+
+    private static final String PLACEHOLDER = "placeholder";
+
+    private static final ItemSerializer<String> SERIALIZER = new ItemSerializer<String>() {
+        @Override
+        public void write(String item, DataOutput out) throws IOException {
+            if (item == PLACEHOLDER)
+                throw new IOException("Placeholder is saved");
+            out.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Test
+    public void evictedPages_areLoadedAgainAfterRestore() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        TestRecyclerView recyclerView = new TestRecyclerView(adapter);
+        adapter.enableLoadMore(recyclerView, (TrueRecyclerAdapter.LoadMoreListener) null);
+        adapter.addAll(Arrays.asList("i0", "i1", "i2", "i3", "i4", "i5"));
+        recyclerView.setVisibleRange(4, 5);
+        recyclerView.scroll();
+        assertTrue(adapter.isPageEvicted(0));
+        assertTrue(adapter.isPageEvicted(1));
+
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            adapter.saveSnapshot(file, SERIALIZER, null);
+            awaitBackground();
+
+            TestAdapter restored = new TestAdapter();
+            TestRecyclerView restoredView = new TestRecyclerView(restored);
+            restored.enableLoadMore(restoredView, (TrueRecyclerAdapter.LoadMoreListener) null);
+            assertTrue(restored.restoreSnapshot(file, SERIALIZER, null));
+            awaitBackground();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            assertEquals(6, restored.getItemsSize());
+            for (int i = 0; i < 4; i++)
+                assertSame(PLACEHOLDER, restored.getItem(i));
+            assertEquals("i4", restored.getItem(4));
+            assertTrue(restored.isPageEvicted(0));
+            assertFalse(restored.isPageEvicted(2));
+
+            // Evicted page comes close to the visible range and is requested again
+            restoredView.setVisibleRange(0, 1);
+            restoredView.scroll();
+            assertEquals(Arrays.asList(0), restored.requestedPages);
+            restored.setPage(0, Arrays.asList("i0", "i1"));
+            assertEquals("i0", restored.getItem(0));
+            assertFalse(restored.isPageEvicted(0));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void snapshotWithEvictedPages_needsPageWindow() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        TestRecyclerView recyclerView = new TestRecyclerView(adapter);
+        adapter.enableLoadMore(recyclerView, (TrueRecyclerAdapter.LoadMoreListener) null);
+        adapter.addAll(Arrays.asList("i0", "i1", "i2", "i3"));
+        recyclerView.setVisibleRange(2, 3);
+        recyclerView.scroll();
+
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            adapter.saveSnapshot(file, SERIALIZER, null);
+            awaitBackground();
+
+            TestAdapter restored = new TestAdapter();
+            restored.setPageWindow(0, null);
+            assertFalse(restored.restoreSnapshot(file, SERIALIZER, null));
+            assertEquals(0, restored.getItemsSize());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Wait for tasks of the background thread shared by adapters.
+     */
+    private static void awaitBackground() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        TrueDiffer.getDefaultExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<String, RecyclerView.ViewHolder> {
+        final List<Integer> requestedPages = new ArrayList<>();
+
+        TestAdapter() {
+            setPageCount(2);
+            setPageWindow(0, new PageWindowListener<String>() {
+                @Override
+                public String createPlaceholder(int position) {
+                    return PLACEHOLDER;
+                }
+
+                @Override
+                public void loadPage(int page) {
+                    requestedPages.add(page);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Single-item mutations of TrueRecyclerAdapter must not allocate: in plain mode,
+ * with position index and keys when the collection doesn't grow, and while filter is applied.
+ * Growth with position index enabled allocates one index node per added item.
+ * Each operation is repeated OPS times, so even one small object per call
+ * would exceed the allowed total of one byte per call.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AllocationTest {
+
+    private static final int OPS = 10000;
+
+    private static final int FILLED = 1, INDEX = 2, KEYS = 4, FILTERED = 8;
+
+    @Test
+    public void add_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (Object model : models)
+                    adapter.add(model);
+            }
+        }, 0, OPS);
+    }
+
+    @Test
+    public void addAtPosition_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (Object model : models)
+                    adapter.add(0, model);
+            }
+        }, 0, OPS);
+    }
+
+    @Test
+    public void removeByPosition_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (int i = 0; i < models.length; i++)
+                    adapter.remove(adapter.getItemsSize() - 1);
+            }
+        }, FILLED, 0);
+    }
+
+    @Test
+    public void removeByModel_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (Object model : models)
+                    adapter.remove(model);
+            }
+        }, FILLED, 0);
+    }
+
+    @Test
+    public void removeByModelWithIndex_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (int i = models.length - 1; i >= 0; i--)
+                    adapter.remove(models[i]);
+            }
+        }, FILLED | INDEX, 0);
+    }
+
+    @Test
+    public void removeAndAddWithIndexAndKeys_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (Object model : models) {
+                    adapter.remove(model);
+                    adapter.add(model);
+                }
+            }
+        }, FILLED | INDEX | KEYS, OPS);
+    }
+
+    @Test
+    public void replaceWithIndexAndKeys_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (int i = 0; i < models.length; i++)
+                    adapter.replace(i, models[models.length - 1 - i]);
+            }
+        }, FILLED | INDEX | KEYS, OPS);
+    }
+
+    @Test
+    public void addWhileFiltered_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (Object model : models)
+                    adapter.add(model);
+            }
+        }, FILTERED, OPS);
+    }
+
+    @Test
+    public void addAtPositionWhileFiltered_doesNotAllocate() throws Exception {
+        assertNoAllocation(new Operation() {
+            @Override
+            public void run(TestAdapter adapter, Object[] models) {
+                for (Object model : models)
+                    adapter.add(0, model);
+            }
+        }, FILTERED, OPS);
+    }
+
+    private interface Operation {
+        void run(TestAdapter adapter, Object[] models);
+    }
+
+    /**
+     * @param mode         FILLED, INDEX, KEYS and FILTERED flags of the adapter before the operation.
+     * @param expectedSize number of items after the operation.
+     */
+    private static void assertNoAllocation(Operation operation, int mode, int expectedSize) {
+        // First pass warms up classes and JIT, second one is measured
+        run(operation, mode, expectedSize);
+        long allocated = run(operation, mode, expectedSize);
+        assertTrue("Allocated " + allocated + " bytes for " + OPS + " calls", allocated < OPS);
+    }
+
+    private static long run(Operation operation, int mode, int expectedSize) {
+        Object[] models = new Object[OPS];
+        for (int i = 0; i < OPS; i++)
+            models[i] = new Object();
+        TestAdapter adapter = new TestAdapter();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+        });
+        adapter.setPositionIndexEnabled((mode & INDEX) != 0);
+        if ((mode & KEYS) != 0) {
+            adapter.setKeyExtractor(new KeyExtractor<Object>() {
+                @Override
+                public long getKey(Object item) {
+                    return System.identityHashCode(item);
+                }
+            });
+        }
+        adapter.addHeader(new Object());
+        adapter.addFooter(new Object());
+        ((ArrayList<Object>) adapter.getItems()).ensureCapacity(OPS);
+        if ((mode & FILLED) != 0) {
+            for (Object model : models)
+                adapter.getItems().add(model);
+            adapter.invalidatePositionIndex();
+        }
+        // Build the index before measuring
+        adapter.getItemPosition(models[0]);
+        if ((mode & FILTERED) != 0) {
+            adapter.setFilter(new ItemFilter<Object>() {
+                @Override
+                public boolean matches(Object item, CharSequence query) {
+                    return true;
+                }
+            });
+            adapter.setFilterExecutor(new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+            adapter.filter("query");
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            ((ArrayList<Object>) adapter.getUnfilteredItems()).ensureCapacity(OPS);
+        }
+
+        long base = allocatedBytes();
+        long overhead = allocatedBytes() - base;
+        long start = allocatedBytes();
+        operation.run(adapter, models);
+        long allocated = allocatedBytes() - start - overhead;
+
+        assertEquals(expectedSize, adapter.getItemsSize());
+        return allocated;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<Object, RecyclerView.ViewHolder> {
+    }
+}
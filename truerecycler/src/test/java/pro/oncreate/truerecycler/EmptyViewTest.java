@@ -0,0 +1,66 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Empty view follows the state of data, every change of it goes through emptyViewSyncState().
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class EmptyViewTest {
+
+    @Test
+    public void emptyView_isShownOnlyInEmptyState() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        final List<String> calls = new ArrayList<>();
+        adapter.setEmptyView(new EmptyViewCallback() {
+            @Override
+            public void empty() {
+                calls.add("empty");
+            }
+
+            @Override
+            public void reset() {
+                calls.add("reset");
+            }
+        });
+        adapter.loadingFinish(true);
+        adapter.add("a");
+        adapter.clear(true);
+        assertEquals(Arrays.asList("reset", "empty", "reset", "empty"), calls);
+    }
+
+    @Test
+    public void stateChanges_goThroughOverriddenSync() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.add("a");
+        adapter.loadingError();
+        adapter.clear();
+        assertTrue(adapter.syncCount >= 3);
+        int count = adapter.syncCount;
+        adapter.setAllLoaded(true);
+        assertEquals(count + 1, adapter.syncCount);
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<Object, RecyclerView.ViewHolder> {
+        int syncCount;
+
+        @Override
+        protected void emptyViewSyncState() {
+            syncCount++;
+            super.emptyViewSyncState();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * View types of headers and footers by content are shared by equal keys and released with the last of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class HeaderFooterTypesTest {
+
+    @Test
+    public void equalKeys_shareViewType() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.addHeader("a1");
+        adapter.addHeader("a2");
+        adapter.addHeader("b1");
+        adapter.addFooter("a3");
+
+        assertEquals(adapter.getItemViewType(0), adapter.getItemViewType(1));
+        assertNotEquals(adapter.getItemViewType(0), adapter.getItemViewType(2));
+    }
+
+    @Test
+    public void removedKey_isReleasedWithLastHeaderOrFooter() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.addHeader("a1");
+        adapter.addFooter("a2");
+        int type = adapter.getItemViewType(0);
+
+        // The footer still uses the key
+        adapter.removeHeader(0);
+        adapter.addHeader("a3");
+        assertEquals(type, adapter.getItemViewType(0));
+
+        adapter.removeHeader(0);
+        adapter.removeFooter();
+        adapter.addHeader("a4");
+        assertNotEquals(type, adapter.getItemViewType(0));
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<Object, RecyclerView.ViewHolder> {
+
+        TestAdapter() {
+            setHeaderFooterTypesByContent(true);
+        }
+
+        @Override
+        protected Object getContentTypeKey(Object headerOrFooter) {
+            return headerOrFooter instanceof String ? ((String) headerOrFooter).charAt(0)
+                    : super.getContentTypeKey(headerOrFooter);
+        }
+    }
+}
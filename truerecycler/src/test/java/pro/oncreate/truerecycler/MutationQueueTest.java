@@ -0,0 +1,88 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Mutations posted from other threads are applied together on the next frame,
+ * the snapshot is copied once per frame with changes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MutationQueueTest {
+
+    @Test
+    public void mutationsFromOtherThread_areAppliedOnOneFrameInOrder() throws Exception {
+        TestReceiver receiver = new TestReceiver();
+        final MutationQueue<String> queue = new MutationQueue<>(receiver);
+        final List<TrueRecyclerAdapter.Mutation<String>> posted = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            posted.add(new TestMutation());
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (TrueRecyclerAdapter.Mutation<String> mutation : posted)
+                    queue.post(mutation);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(0, receiver.frames);
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, receiver.frames);
+        assertEquals(posted, receiver.applied);
+    }
+
+    @Test
+    public void snapshot_isCopiedOnFrameAfterChange() throws Exception {
+        TestReceiver receiver = new TestReceiver();
+        MutationQueue<String> queue = new MutationQueue<>(receiver);
+        receiver.items.add("a");
+        queue.setSnapshotItems(receiver.items);
+
+        receiver.items.add("b");
+        queue.markSnapshotDirty();
+        queue.markSnapshotDirty();
+        assertEquals(Arrays.asList("a"), queue.getSnapshot());
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("a", "b"), queue.getSnapshot());
+        assertEquals(0, receiver.frames);
+    }
+
+    private static class TestReceiver implements MutationQueue.Receiver<String> {
+        final List<String> items = new ArrayList<>();
+        final List<TrueRecyclerAdapter.Mutation<String>> applied = new ArrayList<>();
+        int frames;
+
+        @Override
+        public void onMutations(MutationQueue<String> queue) {
+            frames++;
+            TrueRecyclerAdapter.Mutation<String> mutation;
+            while ((mutation = queue.poll()) != null)
+                applied.add(mutation);
+        }
+
+        @Override
+        public List<String> getSnapshotItems() {
+            return items;
+        }
+    }
+
+    private static class TestMutation implements TrueRecyclerAdapter.Mutation<String> {
+        @Override
+        public void apply(TrueRecyclerAdapter<String, ?> adapter) {
+
+        }
+    }
+}
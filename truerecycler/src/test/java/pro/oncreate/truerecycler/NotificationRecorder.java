@@ -0,0 +1,146 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Headless observer of TrueRecyclerAdapter. Applies notifications to a copy of the adapter rows,
+ * like RecyclerView does with its view holders, and checks the copy against the adapter.
+ */
+class NotificationRecorder extends RecyclerView.AdapterDataObserver {
+
+    /**
+     * Row inserted or changed since the last check, its content is taken from the adapter.
+     */
+    private static final Object UNKNOWN = new Object();
+
+    private final TrueRecyclerAdapter<Object, ?> adapter;
+
+    private final List<Object> rows = new ArrayList<>();
+
+    int insertedRows, removedRows, changedRows, movedRows, dataSetChanges;
+
+    NotificationRecorder(TrueRecyclerAdapter<Object, ?> adapter) {
+        this.adapter = adapter;
+        rows.addAll(currentRows());
+        adapter.registerAdapterDataObserver(this);
+    }
+
+    @Override
+    public void onChanged() {
+        dataSetChanges++;
+        rows.clear();
+        for (int i = adapter.getItemCount(); i > 0; i--)
+            rows.add(UNKNOWN);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        onItemRangeChanged(positionStart, itemCount, null);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+        checkRange(positionStart, itemCount, rows.size());
+        changedRows += itemCount;
+        for (int i = 0; i < itemCount; i++)
+            rows.set(positionStart + i, UNKNOWN);
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        checkRange(positionStart, itemCount, rows.size() + itemCount);
+        insertedRows += itemCount;
+        for (int i = 0; i < itemCount; i++)
+            rows.add(positionStart, UNKNOWN);
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        checkRange(positionStart, itemCount, rows.size());
+        removedRows += itemCount;
+        rows.subList(positionStart, positionStart + itemCount).clear();
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        assertEquals("moved count", 1, itemCount);
+        assertTrue("move " + fromPosition + " -> " + toPosition, fromPosition != toPosition);
+        checkRange(fromPosition, 1, rows.size());
+        checkRange(toPosition, 1, rows.size());
+        movedRows++;
+        rows.add(toPosition, rows.remove(fromPosition));
+    }
+
+    private static void checkRange(int positionStart, int itemCount, int size) {
+        assertTrue("empty range at " + positionStart, itemCount > 0);
+        assertTrue("range [" + positionStart + ", " + (positionStart + itemCount) + ") of " + size,
+                positionStart >= 0 && positionStart + itemCount <= size);
+    }
+
+    /**
+     * Check that the notified rows match the adapter rows and forget recorded counts.
+     */
+    void verify() {
+        List<Object> current = currentRows();
+        assertEquals("row count", current.size(), rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) != UNKNOWN)
+                assertTrue("row " + i, current.get(i) == rows.get(i));
+        }
+        rows.clear();
+        rows.addAll(current);
+        reset();
+    }
+
+    /**
+     * Check that the notifications are minimal for the change from old rows to the current rows:
+     * only rows added to the adapter are inserted and only rows gone from it are removed.
+     *
+     * @param replacedRows rows replaced in place, they are notified as changed.
+     */
+    void verifyMinimal(List<Object> oldRows, int replacedRows) {
+        List<Object> current = currentRows();
+        assertEquals("dataSetChanged", 0, dataSetChanges);
+        assertEquals("inserted rows", missing(current, oldRows) - replacedRows, insertedRows);
+        assertEquals("removed rows", missing(oldRows, current) - replacedRows, removedRows);
+    }
+
+    void reset() {
+        insertedRows = removedRows = changedRows = movedRows = dataSetChanges = 0;
+    }
+
+    List<Object> currentRows() {
+        List<Object> current = new ArrayList<>(adapter.headers);
+        current.addAll(adapter.getItems());
+        current.addAll(adapter.footers);
+        return current;
+    }
+
+    /**
+     * @return number of rows of from which are not in to, by identity.
+     */
+    private static int missing(List<Object> from, List<Object> to) {
+        Map<Object, Integer> counts = new IdentityHashMap<>();
+        for (Object row : to) {
+            Integer count = counts.get(row);
+            counts.put(row, count == null ? 1 : count + 1);
+        }
+        int missing = 0;
+        for (Object row : from) {
+            Integer count = counts.get(row);
+            if (count == null || count == 0)
+                missing++;
+            else
+                counts.put(row, count - 1);
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,188 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Random mutations of TrueRecyclerAdapter, after each of them the recorded notifications
+ * must transform the old rows to the new ones and insert or remove nothing extra.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NotificationTest {
+
+    private static final int STEPS = 5000;
+
+    @Test
+    public void mutations_notifyMinimalRanges() throws Exception {
+        Random random = new Random(42);
+        TestAdapter adapter = new TestAdapter();
+        NotificationRecorder recorder = new NotificationRecorder(adapter);
+        for (int step = 0; step < STEPS; step++) {
+            List<Object> oldRows = recorder.currentRows();
+            Mutation mutation = mutate(adapter, random);
+            recorder.verifyMinimal(oldRows, mutation.replacedRows);
+            assertEquals("changed rows at step " + step, mutation.changedRows, recorder.changedRows);
+            recorder.verify();
+        }
+    }
+
+    @Test
+    public void batches_notifyValidRanges() throws Exception {
+        Random random = new Random(7);
+        final TestAdapter adapter = new TestAdapter();
+        NotificationRecorder recorder = new NotificationRecorder(adapter);
+        for (int step = 0; step < STEPS / 10; step++) {
+            final Random batchRandom = new Random(random.nextLong());
+            adapter.batch(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = batchRandom.nextInt(8); i >= 0; i--)
+                        mutate(adapter, batchRandom);
+                }
+            });
+            recorder.verify();
+        }
+    }
+
+    @Test
+    public void sortedMode_notifyValidRanges() throws Exception {
+        Random random = new Random(11);
+        TestAdapter adapter = new TestAdapter();
+        adapter.addHeader(new Object());
+        adapter.addFooter(new Object());
+        adapter.setComparator(new Comparator<Object>() {
+            @Override
+            public int compare(Object o1, Object o2) {
+                return ((Integer) o1).compareTo((Integer) o2);
+            }
+        });
+        NotificationRecorder recorder = new NotificationRecorder(adapter);
+        for (int step = 0; step < STEPS; step++) {
+            List<Object> oldRows = recorder.currentRows();
+            int op = random.nextInt(4);
+            if (op == 0 || adapter.isEmpty()) {
+                adapter.add(random.nextInt(100));
+            } else if (op == 1) {
+                List<Object> page = new ArrayList<>();
+                for (int i = random.nextInt(5); i >= 0; i--)
+                    page.add(random.nextInt(100));
+                adapter.addAll(page);
+            } else if (op == 2) {
+                adapter.remove(random.nextInt(adapter.getItemsSize()));
+            } else {
+                adapter.replace(random.nextInt(adapter.getItemsSize()), (Object) random.nextInt(100));
+            }
+            if (op != 3)
+                recorder.verifyMinimal(oldRows, 0);
+            recorder.verify();
+        }
+    }
+
+    /**
+     * Rows which must be notified as changed.
+     */
+    private static class Mutation {
+        static final Mutation NONE = new Mutation(0, 0);
+        static final Mutation UPDATED = new Mutation(1, 0);
+        static final Mutation REPLACED = new Mutation(1, 1);
+
+        final int changedRows;
+        final int replacedRows;
+
+        Mutation(int changedRows, int replacedRows) {
+            this.changedRows = changedRows;
+            this.replacedRows = replacedRows;
+        }
+    }
+
+    private static Mutation mutate(TestAdapter adapter, Random random) {
+        int items = adapter.getItemsSize();
+        switch (random.nextInt(16)) {
+            case 0:
+                adapter.add(new Object());
+                return Mutation.NONE;
+            case 1:
+                adapter.add(random.nextInt(items + 1), new Object());
+                return Mutation.NONE;
+            case 2:
+                adapter.addAll(page(random));
+                return Mutation.NONE;
+            case 3:
+                adapter.addAll(random.nextInt(items + 1), page(random));
+                return Mutation.NONE;
+            case 4:
+                if (items > 0)
+                    adapter.remove(random.nextInt(items));
+                return Mutation.NONE;
+            case 5:
+                if (items > 0)
+                    adapter.remove(adapter.getItem(random.nextInt(items)));
+                return Mutation.NONE;
+            case 6:
+                if (items == 0)
+                    return Mutation.NONE;
+                adapter.replace(random.nextInt(items), new Object());
+                return Mutation.REPLACED;
+            case 7:
+                if (items == 0)
+                    return Mutation.NONE;
+                adapter.update(random.nextInt(items), "payload");
+                return Mutation.UPDATED;
+            case 8:
+                if (random.nextBoolean() || adapter.getHeadersSize() == 0)
+                    adapter.addHeader(new Object());
+                else
+                    adapter.removeHeader(random.nextInt(adapter.getHeadersSize()));
+                return Mutation.NONE;
+            case 9:
+                if (random.nextBoolean() || adapter.getFootersSize() == 0)
+                    adapter.addFooter(new Object());
+                else if (random.nextBoolean())
+                    adapter.removeFooter(adapter.getHeadersSize() + items + random.nextInt(adapter.getFootersSize()));
+                else
+                    adapter.removeFooter();
+                return Mutation.NONE;
+            case 10:
+                adapter.loadingStartWithLoadMore();
+                return Mutation.NONE;
+            case 11:
+                adapter.loaded();
+                return Mutation.NONE;
+            case 12:
+                if (random.nextInt(10) == 0)
+                    adapter.clear();
+                return Mutation.NONE;
+            case 13:
+                adapter.loadingStartWithLoadPrevious();
+                return Mutation.NONE;
+            case 14:
+                adapter.loadedPrevious();
+                return Mutation.NONE;
+            default:
+                adapter.addAll(new ArrayList<>());
+                return Mutation.NONE;
+        }
+    }
+
+    private static List<Object> page(Random random) {
+        List<Object> page = new ArrayList<>();
+        for (int i = random.nextInt(5); i >= 0; i--)
+            page.add(new Object());
+        return page;
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<Object, RecyclerView.ViewHolder> {
+    }
+}
@@ -0,0 +1,107 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Progress footer of the page loader is removed when the page is loaded or finally fails,
+ * a failed page is requested again only by explicit retry.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PageLoaderTest {
+
+    @Test
+    public void loadedPage_removesProgressFooter() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.enableLoadMore(null, new PageLoader<Object>() {
+            @Override
+            public void load(int page, Callback<Object> callback) {
+                List<Object> items = new ArrayList<>();
+                items.add(new Object());
+                callback.onLoaded(items, false);
+            }
+        });
+        adapter.loadNextPage();
+        assertEquals(1, adapter.getFootersSize());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(0, adapter.getFootersSize());
+        assertEquals(1, adapter.getItemsSize());
+        assertFalse(adapter.isLoading());
+    }
+
+    @Test
+    public void failedPage_removesProgressFooter() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        NotificationRecorder recorder = new NotificationRecorder(adapter);
+        adapter.setPageRetryPolicy(1, 10);
+        adapter.enableLoadMore(null, new PageLoader<Object>() {
+            @Override
+            public void load(int page, Callback<Object> callback) {
+                callback.onError(new RuntimeException("offline"));
+            }
+        });
+        adapter.loadNextPage();
+        assertEquals(1, adapter.getFootersSize());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertEquals(0, adapter.getFootersSize());
+        assertFalse(adapter.isLoading());
+        assertEquals(0, adapter.getNextPage());
+        recorder.verify();
+    }
+
+    @Test
+    public void failedPage_isNotRequestedAgainUntilRetry() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        TestRecyclerView recyclerView = new TestRecyclerView(adapter);
+        final int[] loads = new int[2];
+        adapter.setPageRetryPolicy(0, 10);
+        adapter.enableLoadMore(recyclerView, new PageLoader<Object>() {
+            @Override
+            public void load(int page, Callback<Object> callback) {
+                loads[page]++;
+                if (page == 0)
+                    callback.onLoaded(Collections.singletonList(new Object()), false);
+                else
+                    callback.onError(new RuntimeException("offline"));
+            }
+        });
+        adapter.loadNextPage();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        // The end of the list is visible, load more requests the second page and it fails
+        recyclerView.scroll();
+        // Layout with the progress footer
+        recyclerView.scroll();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, loads[1]);
+        assertEquals(0, adapter.getFootersSize());
+
+        // Removed footer changes item count, RecyclerView reports scroll after layout
+        recyclerView.scroll();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, loads[1]);
+        assertFalse(adapter.isLoading());
+
+        adapter.loadNextPage();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, loads[1]);
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<Object, RecyclerView.ViewHolder> {
+    }
+}
@@ -0,0 +1,110 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Requests of the same page are merged, failed requests are retried and results of cancelled ones are dropped.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PageRequesterTest {
+
+    @Test
+    public void sameRequests_areMerged() throws Exception {
+        TestLoader loader = new TestLoader();
+        TestReceiver receiver = new TestReceiver();
+        PageRequester<String> requester = new PageRequester<>(receiver);
+        requester.setLoader(loader);
+        requester.requestNext();
+        requester.request(0);
+        assertEquals(1, loader.callbacks.size());
+
+        loader.callbacks.get(0).onLoaded(Arrays.asList("a"), false);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("next [a]"), receiver.events);
+        assertEquals(1, requester.getNextPage());
+
+        // Page before the next one is loaded again
+        requester.request(0);
+        loader.callbacks.get(1).onLoaded(Arrays.asList("b"), false);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("next [a]", "reloaded 0 [b]"), receiver.events);
+    }
+
+    @Test
+    public void failedRequest_isRetriedThenReported() throws Exception {
+        TestLoader loader = new TestLoader();
+        TestReceiver receiver = new TestReceiver();
+        PageRequester<String> requester = new PageRequester<>(receiver);
+        requester.setLoader(loader);
+        requester.setRetryPolicy(1, 10);
+        requester.requestNext();
+
+        loader.callbacks.get(0).onError(new RuntimeException("offline"));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, loader.callbacks.size());
+        assertTrue(receiver.events.isEmpty());
+
+        loader.callbacks.get(1).onError(new RuntimeException("offline"));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList("failed 0 next"), receiver.events);
+        assertFalse(requester.isRequested(0));
+    }
+
+    @Test
+    public void cancelledRequest_isDropped() throws Exception {
+        TestLoader loader = new TestLoader();
+        TestReceiver receiver = new TestReceiver();
+        PageRequester<String> requester = new PageRequester<>(receiver);
+        requester.setLoader(loader);
+        requester.setNextPage(2);
+        requester.requestNext();
+        requester.cancel();
+        assertTrue(loader.callbacks.get(0).isCancelled());
+        assertEquals(0, requester.getNextPage());
+
+        loader.callbacks.get(0).onLoaded(Arrays.asList("a"), true);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertTrue(receiver.events.isEmpty());
+    }
+
+    private static class TestLoader implements PageLoader<String> {
+        final List<Callback<String>> callbacks = new ArrayList<>();
+
+        @Override
+        public void load(int page, Callback<String> callback) {
+            callbacks.add(callback);
+        }
+    }
+
+    private static class TestReceiver implements PageRequester.Receiver<String> {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onNextPageLoaded(List<String> items, boolean lastPage) {
+            events.add("next " + items);
+        }
+
+        @Override
+        public void onPageReloaded(int page, List<String> items) {
+            events.add("reloaded " + page + " " + items);
+        }
+
+        @Override
+        public void onPageFailed(int page, boolean next, Throwable error) {
+            events.add("failed " + page + (next ? " next" : ""));
+        }
+    }
+}
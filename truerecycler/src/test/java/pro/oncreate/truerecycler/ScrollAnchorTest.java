@@ -0,0 +1,136 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The first visible item keeps its place when rows are inserted above it, once per batch,
+ * and RecyclerView is not scrolled for inserts below it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ScrollAnchorTest {
+
+    private static final ItemSerializer<String> SERIALIZER = new ItemSerializer<String>() {
+        @Override
+        public void write(String item, DataOutput out) throws IOException {
+            out.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Test
+    public void prepend_keepsFirstVisibleItem() throws Exception {
+        TestAdapter adapter = new TestAdapter(10);
+        TestRecyclerView recyclerView = attach(adapter, 2, 5);
+
+        adapter.add(0, "new");
+        assertEquals(Arrays.asList("3:0"), recyclerView.scrolls);
+    }
+
+    @Test
+    public void insertBelowFirstVisible_doesNotScroll() throws Exception {
+        TestAdapter adapter = new TestAdapter(10);
+        TestRecyclerView recyclerView = attach(adapter, 2, 5);
+
+        adapter.add(4, "new");
+        adapter.add("last");
+        assertTrue(recyclerView.scrolls.isEmpty());
+    }
+
+    @Test
+    public void batch_isAnchoredOnceOnCommit() throws Exception {
+        final TestAdapter adapter = new TestAdapter(10);
+        TestRecyclerView recyclerView = attach(adapter, 2, 5);
+
+        adapter.batch(new Runnable() {
+            @Override
+            public void run() {
+                adapter.add(0, "a");
+                adapter.add(0, "b");
+                adapter.addAll(0, Arrays.asList("c", "d"));
+            }
+        });
+        assertEquals(Arrays.asList("6:0"), recyclerView.scrolls);
+    }
+
+    @Test
+    public void restoredChunksAbove_keepFirstVisibleItem() throws Exception {
+        TestAdapter adapter = new TestAdapter(200);
+        TestRecyclerView recyclerView = attach(adapter, 100, 103);
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            adapter.saveSnapshot(file, SERIALIZER, recyclerView);
+            awaitBackground();
+
+            TestAdapter restored = new TestAdapter(0);
+            TestRecyclerView restoredView = attach(restored, 0, -1);
+            assertTrue(restored.restoreSnapshot(file, SERIALIZER, restoredView));
+            // The anchor chunk starts at item 64
+            assertEquals(Arrays.asList("36:0"), restoredView.scrolls);
+            restoredView.setVisibleRange(36, 39);
+            restoredView.layOut();
+
+            awaitBackground();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            assertEquals(200, restored.getItemsSize());
+            assertEquals(Arrays.asList("36:0", "100:0"), restoredView.scrolls);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static TestRecyclerView attach(TestAdapter adapter, int firstVisible, int lastVisible) {
+        TestRecyclerView recyclerView = new TestRecyclerView(adapter);
+        adapter.onAttachedToRecyclerView(recyclerView);
+        recyclerView.setVisibleRange(firstVisible, lastVisible);
+        recyclerView.layOut();
+        return recyclerView;
+    }
+
+    /**
+     * Wait for tasks of the background thread shared by adapters.
+     */
+    private static void awaitBackground() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        TrueDiffer.getDefaultExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<String, RecyclerView.ViewHolder> {
+
+        TestAdapter(int count) {
+            List<String> items = new ArrayList<>();
+            for (int i = 0; i < count; i++)
+                items.add("i" + i);
+            if (!items.isEmpty())
+                addAll(items);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Restore delivers the chunk at the saved position first, then chunks below and above it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SnapshotStoreTest {
+
+    private static final ItemSerializer<Integer> SERIALIZER = new ItemSerializer<Integer>() {
+        @Override
+        public void write(Integer item, DataOutput out) throws IOException {
+            out.writeInt(item);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    @Test
+    public void chunks_areRestoredAroundAnchor() throws Exception {
+        TestReceiver receiver = new TestReceiver();
+        SnapshotStore<Integer> store = new SnapshotStore<>(receiver);
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            TrueSnapshot.State state = new TrueSnapshot.State();
+            state.anchorPosition = 100;
+            store.save(file, items(200), state, SERIALIZER, null, 0);
+            awaitBackground();
+
+            assertTrue(store.restore(file, SERIALIZER, false, null, 0));
+            assertTrue(store.isRestoring());
+            awaitBackground();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            assertFalse(store.isRestoring());
+            assertEquals(Arrays.asList("started 64", "after 128", "after 192", "before 0", "finished true"), receiver.events);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void cancelledRestore_dropsChunks() throws Exception {
+        TestReceiver receiver = new TestReceiver();
+        SnapshotStore<Integer> store = new SnapshotStore<>(receiver);
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            store.save(file, items(200), new TrueSnapshot.State(), SERIALIZER, null, 0);
+            awaitBackground();
+
+            assertTrue(store.restore(file, SERIALIZER, false, null, 0));
+            store.cancel();
+            awaitBackground();
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+            assertFalse(store.isRestoring());
+            assertEquals(Arrays.asList("started 0"), receiver.events);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void evictedPages_needPlaceholders() throws Exception {
+        TestReceiver receiver = new TestReceiver();
+        SnapshotStore<Integer> store = new SnapshotStore<>(receiver);
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            TrueSnapshot.State state = new TrueSnapshot.State();
+            state.pageCount = 10;
+            state.evictedPages.set(0);
+            store.save(file, items(20), state, SERIALIZER, null, 0);
+            awaitBackground();
+
+            assertFalse(store.restore(file, SERIALIZER, false, null, 0));
+            assertTrue(receiver.events.isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static List<Integer> items(int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            items.add(i);
+        return items;
+    }
+
+    /**
+     * Wait for tasks of the background thread shared by adapters.
+     */
+    private static void awaitBackground() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        TrueDiffer.getDefaultExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    private static class TestReceiver implements SnapshotStore.Receiver<Integer> {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onRestoreStarted(TrueSnapshot.State state, List<Integer> chunk, int from) {
+            assertEquals(Integer.valueOf(from), chunk.get(0));
+            events.add("started " + from);
+        }
+
+        @Override
+        public void onChunkRestored(List<Integer> chunk, int from, boolean before) {
+            assertEquals(Integer.valueOf(from), chunk.get(0));
+            events.add((before ? "before " : "after ") + from);
+        }
+
+        @Override
+        public void onRestoreFinished(TrueSnapshot.State state, boolean complete) {
+            events.add("finished " + complete);
+        }
+    }
+}
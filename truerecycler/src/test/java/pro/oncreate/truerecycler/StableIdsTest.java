@@ -0,0 +1,53 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Headers and footers get distinct stable ids from the reserved range.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class StableIdsTest {
+
+    @Test
+    public void progressHeaderAndFooter_haveDistinctIds() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.add(1L);
+        adapter.loadingStartWithLoadPrevious();
+        adapter.loadingStartWithLoadMore();
+        assertEquals(3, adapter.getItemCount());
+
+        long headerId = adapter.getItemId(0);
+        long footerId = adapter.getItemId(2);
+        assertTrue(headerId < TrueRecyclerAdapter.RESERVED_ID_MAX);
+        assertTrue(footerId < TrueRecyclerAdapter.RESERVED_ID_MAX);
+        assertNotEquals(headerId, footerId);
+        assertEquals(1L, adapter.getItemId(1));
+
+        // Ids stay the same while rows are shown
+        adapter.add(2L);
+        assertEquals(headerId, adapter.getItemId(0));
+        assertEquals(footerId, adapter.getItemId(3));
+    }
+
+    private static class TestAdapter extends TrueRecyclerAdapter<Object, RecyclerView.ViewHolder> {
+
+        TestAdapter() {
+            setKeyExtractor(new KeyExtractor<Object>() {
+                @Override
+                public long getKey(Object item) {
+                    return (Long) item;
+                }
+            });
+        }
+    }
+}
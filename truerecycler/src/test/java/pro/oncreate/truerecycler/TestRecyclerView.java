@@ -0,0 +1,141 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RecyclerView without layout. Visible rows are set by the test, all rows by default,
+ * and scroll is reported to the listeners by scroll(). After layOut() visible rows have child views
+ * of ROW_HEIGHT, their adapter positions follow notifications of the adapter until the next layOut().
+ */
+class TestRecyclerView extends RecyclerView {
+
+    static final int ROW_HEIGHT = 100;
+
+    private final List<OnScrollListener> scrollListeners = new ArrayList<>();
+
+    private int firstVisible = 0, lastVisible = -1;
+
+    private final List<View> children = new ArrayList<>();
+
+    private final Map<View, Integer> childPositions = new IdentityHashMap<>();
+
+    /**
+     * Calls of scrollToPositionWithOffset as "position:offset".
+     */
+    final List<String> scrolls = new ArrayList<>();
+
+    TestRecyclerView(final RecyclerView.Adapter adapter) {
+        super(RuntimeEnvironment.application);
+        adapter.registerAdapterDataObserver(new AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                for (View child : children)
+                    childPositions.put(child, NO_POSITION);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                for (View child : children) {
+                    int position = childPositions.get(child);
+                    if (position >= positionStart)
+                        childPositions.put(child, position + itemCount);
+                }
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                for (View child : children) {
+                    int position = childPositions.get(child);
+                    if (position >= positionStart + itemCount)
+                        childPositions.put(child, position - itemCount);
+                    else if (position >= positionStart)
+                        childPositions.put(child, NO_POSITION);
+                }
+            }
+        });
+        setLayoutManager(new LinearLayoutManager(RuntimeEnvironment.application) {
+            @Override
+            public int getItemCount() {
+                return adapter.getItemCount();
+            }
+
+            @Override
+            public int findFirstVisibleItemPosition() {
+                return firstVisible;
+            }
+
+            @Override
+            public int findLastVisibleItemPosition() {
+                return lastVisible >= 0 ? lastVisible : getItemCount() - 1;
+            }
+
+            @Override
+            public int getChildCount() {
+                return children.size();
+            }
+
+            @Override
+            public View getChildAt(int index) {
+                return children.get(index);
+            }
+
+            @Override
+            public int getDecoratedTop(View child) {
+                return children.indexOf(child) * ROW_HEIGHT;
+            }
+
+            @Override
+            public void scrollToPositionWithOffset(int position, int offset) {
+                scrolls.add(position + ":" + offset);
+            }
+        });
+    }
+
+    /**
+     * Create child views of visible rows.
+     */
+    void layOut() {
+        children.clear();
+        childPositions.clear();
+        int last = ((LinearLayoutManager) getLayoutManager()).findLastVisibleItemPosition();
+        for (int position = firstVisible; position <= last; position++) {
+            View child = new View(RuntimeEnvironment.application);
+            children.add(child);
+            childPositions.put(child, position);
+        }
+    }
+
+    @Override
+    public int getChildAdapterPosition(View child) {
+        Integer position = childPositions.get(child);
+        return position != null ? position : NO_POSITION;
+    }
+
+    @Override
+    public void addOnScrollListener(OnScrollListener listener) {
+        super.addOnScrollListener(listener);
+        scrollListeners.add(listener);
+    }
+
+    /**
+     * @param last -1 - to the end of the adapter.
+     */
+    void setVisibleRange(int first, int last) {
+        firstVisible = first;
+        lastVisible = last;
+    }
+
+    void scroll() {
+        for (int i = 0; i < scrollListeners.size(); i++)
+            scrollListeners.get(i).onScrolled(this, 0, 0);
+    }
+}
@@ -0,0 +1,91 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that changes of the shown list found by masks turn the old result into the new one
+ * with the minimal number of inserted and removed items.
+ */
+public class TrueFilterTest {
+
+    @Test
+    public void diffMasks_transformsOldResultToNew() throws Exception {
+        Random random = new Random(42);
+        for (int run = 0; run < 500; run++) {
+            int size = random.nextInt(200);
+            BitSet oldMask = randomMask(random, size);
+            BitSet newMask = randomMask(random, size);
+            final List<Integer> shown = select(oldMask);
+            final int[] counts = new int[2];
+            UpdateBatch updates = new UpdateBatch();
+            TrueFilter.diffMasks(oldMask, newMask, updates);
+            updates.dispatchTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    for (int i = 0; i < count; i++)
+                        shown.add(position, null);
+                    counts[0] += count;
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    shown.subList(position, position + count).clear();
+                    counts[1] += count;
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    throw new AssertionError("Filter doesn't move items");
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    throw new AssertionError("Filter doesn't change items");
+                }
+            });
+
+            List<Integer> expected = select(newMask);
+            assertEquals(expected.size(), shown.size());
+            for (int i = 0; i < expected.size(); i++) {
+                // Inserted items are new, kept items stay in place
+                if (oldMask.get(expected.get(i)))
+                    assertEquals(expected.get(i), shown.get(i));
+                else
+                    assertNull(shown.get(i));
+            }
+            BitSet inserted = (BitSet) newMask.clone();
+            inserted.andNot(oldMask);
+            BitSet removed = (BitSet) oldMask.clone();
+            removed.andNot(newMask);
+            assertEquals(inserted.cardinality(), counts[0]);
+            assertEquals(removed.cardinality(), counts[1]);
+        }
+    }
+
+    private static BitSet randomMask(Random random, int size) {
+        BitSet mask = new BitSet(size);
+        int density = random.nextInt(10);
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) < density)
+                mask.set(i);
+        }
+        return mask;
+    }
+
+    private static List<Integer> select(BitSet mask) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1))
+            items.add(i);
+        return items;
+    }
+}
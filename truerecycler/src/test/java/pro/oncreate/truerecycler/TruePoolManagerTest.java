@@ -0,0 +1,80 @@
+package pro.oncreate.truerecycler;
+
+import android.arch.lifecycle.Lifecycle;
+import android.arch.lifecycle.LifecycleOwner;
+import android.arch.lifecycle.LifecycleRegistry;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Holders of registered types are shared until the lifecycle owner of the manager is destroyed.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TruePoolManagerTest {
+
+    @Test
+    public void destroyedOwner_clearsSharedPool() throws Exception {
+        TestOwner owner = new TestOwner();
+        TruePoolManager manager = new TruePoolManager(owner);
+        int type = manager.getViewType("row");
+        RecyclerView recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        HolderAdapter adapter = new HolderAdapter();
+        recyclerView.setAdapter(adapter);
+        manager.attach(recyclerView);
+
+        manager.warmUp(recyclerView, "row", 3);
+        assertEquals(3, manager.getPool().getRecycledViewCount(type));
+
+        owner.registry.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        assertTrue(manager.isDestroyed());
+        assertEquals(0, manager.getPool().getRecycledViewCount(type));
+
+        // Holders recycled later stay in the pool of their RecyclerView
+        recyclerView.getRecycledViewPool().putRecycledView(adapter.createViewHolder(recyclerView, type));
+        assertEquals(0, manager.getPool().getRecycledViewCount(type));
+        assertEquals(1, recyclerView.getRecycledViewPool().getRecycledViewCount(type));
+    }
+
+    private static class TestOwner implements LifecycleOwner {
+        final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        TestOwner() {
+            registry.markState(Lifecycle.State.CREATED);
+        }
+
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+
+    private static class HolderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int type) {
+            return new RecyclerView.ViewHolder(new View(RuntimeEnvironment.application)) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}
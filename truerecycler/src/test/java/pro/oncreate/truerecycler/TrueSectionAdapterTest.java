@@ -0,0 +1,231 @@
+package pro.oncreate.truerecycler;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Positions of TrueSectionAdapter map to sections and its notifications keep RecyclerView rows in sync.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TrueSectionAdapterTest {
+
+    @Test
+    public void positions_mapToSections() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        // header, 2 items, footer | 1 item | header, no items
+        adapter.addSection("a", Arrays.<Object>asList("a0", "a1"), "a-footer");
+        adapter.addSection(null, Arrays.<Object>asList("b0"));
+        adapter.addSection("c", new ArrayList<Object>());
+
+        assertEquals(6, adapter.getItemCount());
+        int[] sections = {0, 0, 0, 0, 1, 2};
+        int[] offsets = {RecyclerView.NO_POSITION, 0, 1, RecyclerView.NO_POSITION, 0, RecyclerView.NO_POSITION};
+        int[] types = {TrueSectionAdapter.TYPE_SECTION_HEADER, 0, 0, TrueSectionAdapter.TYPE_SECTION_FOOTER,
+                0, TrueSectionAdapter.TYPE_SECTION_HEADER};
+        for (int position = 0; position < adapter.getItemCount(); position++) {
+            assertEquals("section of " + position, sections[position], adapter.getSectionOfPosition(position));
+            assertEquals("offset of " + position, offsets[position], adapter.getOffsetInSection(position));
+            assertEquals("type of " + position, types[position], adapter.getItemViewType(position));
+        }
+        assertEquals(1, adapter.getAdapterPosition(0, 0));
+        assertEquals(2, adapter.getAdapterPosition(0, 1));
+        assertEquals(4, adapter.getAdapterPosition(1, 0));
+        assertEquals(0, adapter.getSectionHeaderPosition(0));
+        assertEquals(RecyclerView.NO_POSITION, adapter.getSectionHeaderPosition(1));
+        assertEquals(5, adapter.getSectionHeaderPosition(2));
+        assertEquals("a-footer", adapter.getSectionFooter(0));
+    }
+
+    @Test
+    public void setSectionItems_notifiesCommonPartAsChanged() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.addSection("a", Arrays.<Object>asList("a0"));
+        adapter.addSection("b", Arrays.<Object>asList("b0", "b1", "b2"), "b-footer");
+        Recorder recorder = new Recorder(adapter);
+
+        adapter.setSectionItems(1, Arrays.<Object>asList("x0", "x1"));
+        assertEquals(Arrays.asList("changed 3 2", "removed 5 1"), recorder.events);
+        recorder.verify();
+
+        recorder.events.clear();
+        adapter.setSectionItems(0, Arrays.<Object>asList("y0", "y1", "y2"));
+        assertEquals(Arrays.asList("changed 1 1", "inserted 2 2"), recorder.events);
+        recorder.verify();
+    }
+
+    @Test
+    public void setSectionItems_notifiesOnlyChangedRows() throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        adapter.addSection("a", new ArrayList<Object>());
+        adapter.addSection("b", Arrays.<Object>asList("b0", "b1", "b2", "b3", "b4"));
+        Recorder recorder = new Recorder(adapter);
+
+        // Empty common part
+        adapter.setSectionItems(0, Arrays.<Object>asList("a0"));
+        assertEquals(Arrays.asList("inserted 1 1"), recorder.events);
+        recorder.verify();
+
+        recorder.events.clear();
+        List<Object> items = new ArrayList<>(adapter.getSectionItems(1));
+        items.set(1, "x1");
+        items.set(2, "x2");
+        items.set(4, "x4");
+        adapter.setSectionItems(1, items);
+        assertEquals(Arrays.asList("changed 4 2", "changed 7 1"), recorder.events);
+        recorder.verify();
+
+        recorder.events.clear();
+        adapter.setSectionItems(1, new ArrayList<>(items));
+        assertEquals(new ArrayList<String>(), recorder.events);
+    }
+
+    @Test
+    public void randomMutations_keepRowsInSync() throws Exception {
+        Random random = new Random(42);
+        TestAdapter adapter = new TestAdapter();
+        Recorder recorder = new Recorder(adapter);
+        int next = 0;
+        for (int step = 0; step < 2000; step++) {
+            int op = random.nextInt(10);
+            int sections = adapter.getSectionCount();
+            if (op < 2 || sections == 0) {
+                List<Object> items = new ArrayList<>();
+                for (int i = random.nextInt(4); i > 0; i--)
+                    items.add("item" + next++);
+                adapter.insertSection(random.nextInt(sections + 1),
+                        random.nextBoolean() ? "header" + next++ : null, items,
+                        random.nextBoolean() ? "footer" + next++ : null);
+            } else if (op < 3) {
+                adapter.removeSection(random.nextInt(sections));
+            } else if (op < 6) {
+                int section = random.nextInt(sections);
+                adapter.insertItem(section, random.nextInt(adapter.getSectionItems(section).size() + 1),
+                        "item" + next++);
+            } else if (op < 7) {
+                List<Object> items = new ArrayList<>();
+                for (int i = random.nextInt(4); i > 0; i--)
+                    items.add("item" + next++);
+                adapter.addItems(random.nextInt(sections), items);
+            } else if (op < 9) {
+                int section = random.nextInt(sections);
+                int size = adapter.getSectionItems(section).size();
+                if (size > 0)
+                    adapter.removeItem(section, random.nextInt(size));
+            } else if (random.nextInt(10) == 0) {
+                adapter.clear();
+            } else {
+                List<Object> items = new ArrayList<>();
+                for (int i = random.nextInt(6); i > 0; i--)
+                    items.add("item" + next++);
+                adapter.setSectionItems(random.nextInt(sections), items);
+            }
+            recorder.verify();
+        }
+    }
+
+    /**
+     * Applies notifications to a copy of the adapter rows, like RecyclerView does with its view holders.
+     */
+    private static class Recorder extends RecyclerView.AdapterDataObserver {
+
+        /**
+         * Row inserted or changed since the last check, its content is taken from the adapter.
+         */
+        private static final Object UNKNOWN = new Object();
+
+        private final TestAdapter adapter;
+
+        private final List<Object> rows = new ArrayList<>();
+
+        final List<String> events = new ArrayList<>();
+
+        Recorder(TestAdapter adapter) {
+            this.adapter = adapter;
+            rows.addAll(adapter.getRows());
+            adapter.registerAdapterDataObserver(this);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            events.add("changed " + positionStart + " " + itemCount);
+            for (int i = 0; i < itemCount; i++)
+                rows.set(positionStart + i, UNKNOWN);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            events.add("inserted " + positionStart + " " + itemCount);
+            for (int i = 0; i < itemCount; i++)
+                rows.add(positionStart, UNKNOWN);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            events.add("removed " + positionStart + " " + itemCount);
+            rows.subList(positionStart, positionStart + itemCount).clear();
+        }
+
+        void verify() {
+            List<Object> expected = adapter.getRows();
+            assertEquals("rows count", expected.size(), rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i) == UNKNOWN)
+                    rows.set(i, expected.get(i));
+                else
+                    assertSame("row " + i, expected.get(i), rows.get(i));
+            }
+        }
+    }
+
+    private static class TestAdapter extends TrueSectionAdapter<Object, Object, Object> {
+
+        /**
+         * @return header, item and footer models in adapter order.
+         */
+        List<Object> getRows() {
+            List<Object> rows = new ArrayList<>();
+            for (int section = 0; section < getSectionCount(); section++) {
+                if (getSectionHeader(section) != null)
+                    rows.add(getSectionHeader(section));
+                rows.addAll(getSectionItems(section));
+                if (getSectionFooter(section) != null)
+                    rows.add(getSectionFooter(section));
+            }
+            return rows;
+        }
+
+        @Override
+        protected RecyclerView.ViewHolder onCreateItemHolder(ViewGroup parent, int type) {
+            return null;
+        }
+
+        @Override
+        protected RecyclerView.ViewHolder onCreateSectionHeaderHolder(ViewGroup parent) {
+            return null;
+        }
+
+        @Override
+        protected RecyclerView.ViewHolder onCreateSectionFooterHolder(ViewGroup parent) {
+            return null;
+        }
+
+        @Override
+        public void onBindItemHolder(RecyclerView.ViewHolder holder, int section, int offset, Object model) {
+
+        }
+    }
+}
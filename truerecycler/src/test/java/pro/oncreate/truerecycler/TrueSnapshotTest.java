@@ -0,0 +1,94 @@
+package pro.oncreate.truerecycler;
+
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that every chunk of the snapshot file is decoded independently to the written items.
+ */
+public class TrueSnapshotTest {
+
+    private static final ItemSerializer<String> SERIALIZER = new ItemSerializer<String>() {
+        @Override
+        public void write(String item, DataOutput out) throws IOException {
+            out.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Test
+    public void chunks_matchWrittenItems() throws Exception {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            items.add("item " + i);
+        TrueSnapshot.State state = new TrueSnapshot.State();
+        state.allLoaded = true;
+        state.pageCount = 20;
+        state.nextPage = 50;
+        state.anchorPosition = 517;
+        state.anchorOffset = -12;
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            TrueSnapshot.write(file, items, 64, state, SERIALIZER);
+            TrueSnapshot.Reader<String> reader = new TrueSnapshot.Reader<>(file, SERIALIZER);
+            try {
+                assertEquals(1000, reader.itemCount);
+                assertTrue(reader.state.allLoaded);
+                assertEquals(20, reader.state.pageCount);
+                assertEquals(50, reader.state.nextPage);
+                assertEquals(517, reader.state.anchorPosition);
+                assertEquals(-12, reader.state.anchorOffset);
+                assertEquals(8, reader.getChunkOf(517));
+                // Decode the anchor chunk first, as restore does
+                List<String> restored = new ArrayList<>(reader.readChunk(8));
+                assertEquals(items.subList(512, 576), restored);
+                for (int chunk = 9; chunk < reader.getChunkCount(); chunk++)
+                    restored.addAll(reader.readChunk(chunk));
+                for (int chunk = 7; chunk >= 0; chunk--)
+                    restored.addAll(0, reader.readChunk(chunk));
+                assertEquals(items, restored);
+            } finally {
+                reader.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void reader_rejectsTruncatedFile() throws Exception {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            items.add("item " + i);
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            TrueSnapshot.write(file, items, 16, new TrueSnapshot.State(), SERIALIZER);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            raf.setLength(raf.length() - 10);
+            raf.close();
+            try {
+                new TrueSnapshot.Reader<>(file, SERIALIZER).close();
+                fail("Truncated snapshot is accepted");
+            } catch (IOException expected) {
+                // Restore falls back to loading from network
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}